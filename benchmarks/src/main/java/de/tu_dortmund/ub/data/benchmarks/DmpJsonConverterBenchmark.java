@@ -0,0 +1,77 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.benchmarks;
+
+import de.tu_dortmund.ub.data.dswarm.DmpJsonConverter;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.*;
+import org.openrdf.model.Model;
+import org.openrdf.model.impl.LinkedHashModel;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.rio.helpers.StatementCollector;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of the DMP JSON result of a d:swarm task into RDF statements (as in Task.processResult)
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-14
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DmpJsonConverterBenchmark {
+
+    @Param({ "10", "1000", "10000" })
+    public int records;
+
+    @Param({ "20", "200" })
+    public int fields;
+
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws Exception {
+
+        json = Fixtures.dmpJson(records, fields).getBytes("UTF-8");
+    }
+
+    @Benchmark
+    public Model convert() throws Exception {
+
+        DmpJsonConverter converter = new DmpJsonConverter(ValueFactoryImpl.getInstance().createURI("http://data.ub.tu-dortmund.de/resource/graph"), Logger.getLogger(DmpJsonConverterBenchmark.class));
+
+        Model model = new LinkedHashModel();
+        converter.convert(new ByteArrayInputStream(json), new StatementCollector(model));
+
+        return model;
+    }
+}
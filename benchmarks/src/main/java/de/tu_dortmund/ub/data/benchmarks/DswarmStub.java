@@ -0,0 +1,213 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the d:swarm REST API with the endpoints used by the Task Processing Unit
+ *
+ * <ul>
+ *     <li>GET projects/{id}, GET datamodels/{id}</li>
+ *     <li>PUT resources/{id}, POST datamodels/{id}/data (the uploaded data is read and dropped)</li>
+ *     <li>POST tasks: a generated DMP JSON result of 'stub.records' records with 'stub.fields' fields</li>
+ * </ul>
+ *
+ * Every request takes 'stub.latency' ms ('POST tasks' additionally 'stub.task.latency' ms) and fails with a 500 with
+ * probability 'stub.errorRate'.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-15
+ *
+ */
+public class DswarmStub {
+
+    private long latency;
+    private long taskLatency;
+    private double errorRate;
+
+    private byte[] result;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private final Random random = new Random();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong uploaded = new AtomicLong();
+
+    public DswarmStub(Properties config) throws IOException {
+
+        this.latency = Long.parseLong(config.getProperty("stub.latency", "0"));
+        this.taskLatency = Long.parseLong(config.getProperty("stub.task.latency", "0"));
+        this.errorRate = Double.parseDouble(config.getProperty("stub.errorRate", "0"));
+
+        this.result = Fixtures.dmpJson(Integer.parseInt(config.getProperty("stub.records", "1000")), Integer.parseInt(config.getProperty("stub.fields", "20"))).getBytes("UTF-8");
+    }
+
+    /**
+     * @return the base url for 'engine.dswarm.api'
+     */
+    public String start() throws IOException {
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/dmp/", new HttpHandler() {
+
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+
+                try {
+                    serve(exchange);
+                }
+                finally {
+                    exchange.close();
+                }
+            }
+        });
+
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+
+        return "http://localhost:" + server.getAddress().getPort() + "/dmp/";
+    }
+
+    public void stop() {
+
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public long getRequests() {
+
+        return requests.get();
+    }
+
+    public long getErrors() {
+
+        return errors.get();
+    }
+
+    public long getUploadedBytes() {
+
+        return uploaded.get();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+
+        requests.incrementAndGet();
+
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().substring("/dmp/".length()).split("/");
+
+        // read the request
+        uploaded.addAndGet(IOUtils.copyLarge(exchange.getRequestBody(), NullOutputStream.NULL_OUTPUT_STREAM));
+
+        sleep(latency);
+
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+
+            errors.incrementAndGet();
+            send(exchange, 500, "{\"error\":\"injected\"}".getBytes("UTF-8"));
+            return;
+        }
+
+        if ("GET".equals(method) && path.length == 2 && "projects".equals(path[0])) {
+
+            send(exchange, 200, ("{\"uuid\":\"" + path[1] + "\",\"name\":\"stub project\",\"mappings\":[]}").getBytes("UTF-8"));
+        }
+        else if ("GET".equals(method) && path.length == 2 && "datamodels".equals(path[0])) {
+
+            send(exchange, 200, dataModel(path[1]));
+        }
+        else if ("POST".equals(method) && path.length == 3 && "datamodels".equals(path[0]) && "data".equals(path[2])) {
+
+            send(exchange, 200, dataModel(path[1]));
+        }
+        else if ("PUT".equals(method) && path.length == 2 && "resources".equals(path[0])) {
+
+            send(exchange, 200, ("{\"uuid\":\"" + path[1] + "\",\"name\":\"stub resource\"}").getBytes("UTF-8"));
+        }
+        else if ("POST".equals(method) && path.length == 1 && "tasks".equals(path[0])) {
+
+            sleep(taskLatency);
+            send(exchange, 200, result);
+        }
+        else {
+
+            send(exchange, 404, "{\"error\":\"not found\"}".getBytes("UTF-8"));
+        }
+    }
+
+    private byte[] dataModel(String id) throws IOException {
+
+        return ("{\"uuid\":\"" + id + "\",\"name\":\"stub data model\","
+                + "\"configuration\":{\"uuid\":\"Configuration-" + id + "\",\"resources\":[{\"uuid\":\"Resource-" + id + "\"}]},"
+                + "\"data_resource\":{\"uuid\":\"Resource-" + id + "\"}}").getBytes("UTF-8");
+    }
+
+    private void send(HttpExchange exchange, int statusCode, byte[] body) throws IOException {
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(statusCode, body.length);
+
+        OutputStream out = exchange.getResponseBody();
+
+        try {
+            out.write(body);
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    private void sleep(long millis) {
+
+        if (millis <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
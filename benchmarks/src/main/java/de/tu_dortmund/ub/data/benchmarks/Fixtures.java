@@ -0,0 +1,152 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.benchmarks;
+
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.RDF;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generated fixture data for the benchmarks
+ *
+ * Every record has one rdf:type, 'fields' literal fields (some with quotes and markup) and 'fields / 4' IRI fields
+ * drawn from a small set of predicates, as in the results of the d:swarm tasks.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-14
+ *
+ */
+public class Fixtures {
+
+    private static final String BASE = "http://data.ub.tu-dortmund.de/resource/";
+    private static final String TYPE = "http://www.w3.org/1999/02/22-rdf-syntax-ns#type";
+
+    /**
+     * @return DMP JSON result of a d:swarm task
+     */
+    public static String dmpJson(int records, int fields) {
+
+        StringBuilder json = new StringBuilder("[");
+
+        for (int r = 0; r < records; r++) {
+
+            if (r > 0) {
+                json.append(',');
+            }
+
+            json.append("{\"__record_id\":\"").append(BASE).append("record/").append(r).append("\",\"__record_data\":[");
+            json.append("{\"").append(TYPE).append("\":\"http://purl.org/ontology/bibo/Book\"}");
+
+            for (int f = 0; f < fields; f++) {
+
+                json.append(",{\"").append(predicate(f)).append("\":\"").append(literal(r, f).replace("\"", "\\\"")).append("\"}");
+            }
+
+            for (int f = 0; f < fields / 4; f++) {
+
+                json.append(",{\"").append(predicate(fields + f)).append("\":[\"").append(BASE).append("subject/").append(f).append("\",\"").append(BASE).append("person/").append(r % 100).append("\"]}");
+            }
+
+            json.append("]}");
+        }
+
+        return json.append("]").toString();
+    }
+
+    /**
+     * @return XML document with 'records' records as used as input of 'preprocessing.xslt'
+     */
+    public static String xml(int records, int fields) {
+
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<collection>");
+
+        for (int r = 0; r < records; r++) {
+
+            xml.append("<record><id>").append(r).append("</id>");
+
+            for (int f = 0; f < fields; f++) {
+
+                xml.append("<field").append(f).append('>').append(literal(r, f).replace("&", "&amp;").replace("<", "&lt;")).append("</field").append(f).append('>');
+            }
+
+            xml.append("</record>");
+        }
+
+        return xml.append("</collection>").toString();
+    }
+
+    /**
+     * @return the statements of {@link #dmpJson(int, int)}
+     */
+    public static List<Statement> statements(int records, int fields) {
+
+        ValueFactory factory = ValueFactoryImpl.getInstance();
+        URI graph = factory.createURI(BASE + "graph");
+
+        ArrayList<Statement> statements = new ArrayList<Statement>();
+
+        for (int r = 0; r < records; r++) {
+
+            URI subject = factory.createURI(BASE + "record/" + r);
+
+            statements.add(factory.createStatement(subject, RDF.TYPE, factory.createURI("http://purl.org/ontology/bibo/Book"), graph));
+
+            for (int f = 0; f < fields; f++) {
+                statements.add(factory.createStatement(subject, factory.createURI(predicate(f)), factory.createLiteral(literal(r, f)), graph));
+            }
+
+            for (int f = 0; f < fields / 4; f++) {
+                statements.add(factory.createStatement(subject, factory.createURI(predicate(fields + f)), factory.createURI(BASE + "subject/" + f), graph));
+            }
+        }
+
+        return statements;
+    }
+
+    private static String predicate(int f) {
+
+        return "http://purl.org/dc/terms/field" + f;
+    }
+
+    private static String literal(int r, int f) {
+
+        switch (f % 4) {
+
+            case 0:
+                return "Title " + r + " of \"a book\" & more";
+            case 1:
+                return "<p>Abstract " + r + "</p>";
+            case 2:
+                return "Müller, Jürgen (" + r + ")";
+            default:
+                return String.valueOf(1900 + r % 120);
+        }
+    }
+}
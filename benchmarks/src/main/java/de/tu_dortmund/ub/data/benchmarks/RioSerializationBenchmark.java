@@ -0,0 +1,116 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.benchmarks;
+
+import de.tu_dortmund.ub.data.util.RdfFormats;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.*;
+import org.openrdf.model.Statement;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFParser;
+import org.openrdf.rio.RDFWriter;
+import org.openrdf.rio.Rio;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rio serialization of the results for each 'results.rdf.format' and parsing of the serialized results (as done by
+ * the loaders downstream)
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-14
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RioSerializationBenchmark {
+
+    @Param({ "xml", "nquads", "jsonld", "ttl", "binary" })
+    public String format;
+
+    @Param({ "100", "10000" })
+    public int records;
+
+    private RDFFormat rdfFormat;
+    private List<Statement> statements;
+    private byte[] serialized;
+
+    @Setup
+    public void setUp() throws Exception {
+
+        // as in Task
+        rdfFormat = RdfFormats.forName(format);
+
+        statements = Fixtures.statements(records, 20);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(Rio.createWriter(rdfFormat, out));
+        serialized = out.toByteArray();
+    }
+
+    @Benchmark
+    public void write() throws Exception {
+
+        write(Rio.createWriter(rdfFormat, NullOutputStream.NULL_OUTPUT_STREAM));
+    }
+
+    @Benchmark
+    public long parse() throws Exception {
+
+        final long[] count = { 0L };
+
+        RDFParser parser = Rio.createParser(rdfFormat);
+        parser.setRDFHandler(new RDFHandlerBase() {
+
+            @Override
+            public void handleStatement(Statement statement) {
+
+                count[0]++;
+            }
+        });
+        parser.parse(new ByteArrayInputStream(serialized), "http://example.org/");
+
+        return count[0];
+    }
+
+    private void write(RDFWriter writer) throws Exception {
+
+        writer.startRDF();
+
+        for (Statement statement : statements) {
+            writer.handleStatement(statement);
+        }
+
+        writer.endRDF();
+    }
+}
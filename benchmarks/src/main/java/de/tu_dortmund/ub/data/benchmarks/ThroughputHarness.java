@@ -0,0 +1,251 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.benchmarks;
+
+import de.tu_dortmund.ub.data.dswarm.TaskProcessingUnit;
+import de.tu_dortmund.ub.data.util.Metrics;
+import org.apache.commons.io.FileUtils;
+
+import java.io.*;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * End-to-end throughput of the Task Processing Unit against a {@link DswarmStub}
+ *
+ * Runs {@link TaskProcessingUnit#run(Properties)} for each value of 'threads' on 'files' generated XML files and
+ * reports files/s and records/s. Parameters ('-key=value'): threads (default 1,2,4,8), files (32), records (records
+ * per d:swarm result, 1000), fields (20), latency (ms per request, 20), taskLatency (ms per task, 200), errorRate (0),
+ * log4j (conf/log4j.properties), conf (additional properties, e.g. engine.* settings) and nodes (1). With nodes &gt; 1, as
+ * many Task Processing Units are started as separate processes on the same watch folder, coordinated by 'engine.leases'.
+ *
+ *     java -cp benchmarks/target/benchmarks.jar de.tu_dortmund.ub.data.benchmarks.ThroughputHarness -threads=1,4,16
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-15
+ *
+ */
+public class ThroughputHarness {
+
+    public static void main(String[] args) throws Exception {
+
+        Properties params = new Properties();
+        params.setProperty("threads", "1,2,4,8");
+        params.setProperty("files", "32");
+        params.setProperty("records", "1000");
+        params.setProperty("fields", "20");
+        params.setProperty("latency", "20");
+        params.setProperty("taskLatency", "200");
+        params.setProperty("errorRate", "0");
+        params.setProperty("log4j", "conf" + File.separatorChar + "log4j.properties");
+        params.setProperty("nodes", "1");
+
+        for (String arg : args) {
+
+            if (arg.startsWith("-") && arg.contains("=")) {
+                params.setProperty(arg.substring(1, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+
+        Properties stubConfig = new Properties();
+        stubConfig.setProperty("stub.latency", params.getProperty("latency"));
+        stubConfig.setProperty("stub.task.latency", params.getProperty("taskLatency"));
+        stubConfig.setProperty("stub.errorRate", params.getProperty("errorRate"));
+        stubConfig.setProperty("stub.records", params.getProperty("records"));
+        stubConfig.setProperty("stub.fields", params.getProperty("fields"));
+
+        DswarmStub stub = new DswarmStub(stubConfig);
+        String api = stub.start();
+
+        File work = File.createTempFile("tpu-harness", "");
+        work.delete();
+
+        File resources = new File(work, "resources");
+        File results = new File(work, "results");
+        resources.mkdirs();
+        results.mkdirs();
+
+        int files = Integer.parseInt(params.getProperty("files"));
+
+        for (int i = 0; i < files; i++) {
+            FileUtils.writeStringToFile(new File(resources, "file-" + i + ".xml"), Fixtures.xml(100, 20), "UTF-8");
+        }
+
+        int nodes = Integer.parseInt(params.getProperty("nodes"));
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ENGLISH, "%8s %8s %8s %10s %10s %12s %10s%n", "nodes", "threads", "files", "seconds", "files/s", "records/s", "failed"));
+
+        try {
+
+            for (String value : params.getProperty("threads").split(",")) {
+
+                int threads = Integer.parseInt(value.trim());
+
+                FileUtils.cleanDirectory(results);
+
+                Properties config = new Properties();
+
+                if (params.getProperty("conf") != null) {
+
+                    Reader reader = new InputStreamReader(new FileInputStream(params.getProperty("conf")), "UTF-8");
+
+                    try {
+                        config.load(reader);
+                    }
+                    finally {
+                        reader.close();
+                    }
+                }
+
+                config.setProperty("service.name", "d:swarm stub load test");
+                config.setProperty("service.log4j-conf", params.getProperty("log4j"));
+                config.setProperty("project.name", "load test");
+                config.setProperty("resource.watchfolder", resources.getPath());
+                config.setProperty("resource.preprocessing", "false");
+                config.setProperty("prototype.projectID", "Project-1");
+                config.setProperty("prototype.dataModelID", "DataModel-1");
+                config.setProperty("prototype.outputDataModelID", "DataModel-2");
+                config.setProperty("results.persistInDMP", "false");
+                config.setProperty("results.persistInFolder", "true");
+                config.setProperty("results.folder", results.getPath());
+                config.setProperty("results.rdf.format", config.getProperty("results.rdf.format", "nquads"));
+                config.setProperty("results.rdf.graph", "http://data.ub.tu-dortmund.de/resource/graph");
+                config.setProperty("engine.threads", String.valueOf(threads));
+                config.setProperty("engine.dswarm.api", api);
+
+                // one input data model per worker
+                StringBuilder dataModelIDs = new StringBuilder();
+
+                for (int i = 1; i <= threads; i++) {
+                    dataModelIDs.append(i > 1 ? "," : "").append("DataModel-input-").append(i);
+                }
+
+                config.setProperty("prototype.dataModelIDs", dataModelIDs.toString());
+
+                long records = Metrics.counter("tpu_records_total").getCount();
+                long failed = Metrics.counter("tpu_tasks_total", "result=\"failed\"").getCount();
+                long start = System.nanoTime();
+
+                if (nodes > 1) {
+
+                    File leases = new File(work, "leases");
+                    FileUtils.deleteQuietly(leases);
+
+                    config.setProperty("engine.leases", leases.getPath());
+
+                    runNodes(config, nodes, work);
+
+                    // files not marked as done have failed or were lost with a node
+                    long done = countDone(leases);
+
+                    failed = files - done;
+                    records = done * Long.parseLong(params.getProperty("records"));
+                }
+                else {
+
+                    TaskProcessingUnit.run(config);
+
+                    records = Metrics.counter("tpu_records_total").getCount() - records;
+                    failed = Metrics.counter("tpu_tasks_total", "result=\"failed\"").getCount() - failed;
+                }
+
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                report.append(String.format(Locale.ENGLISH, "%8d %8d %8d %10.1f %10.2f %12.0f %10d%n", nodes, threads, files, seconds, files / seconds, records / seconds, failed));
+            }
+        }
+        finally {
+
+            stub.stop();
+            FileUtils.deleteDirectory(work);
+        }
+
+        System.out.println();
+        System.out.println("d:swarm stub: " + stub.getRequests() + " requests, " + stub.getErrors() + " injected errors, " + stub.getUploadedBytes() + " bytes uploaded");
+        System.out.println(report);
+    }
+
+    /**
+     * run the Task Processing Unit in separate processes sharing the watch folder; their output goes to
+     * '&lt;work&gt;/node-&lt;n&gt;.log'
+     */
+    private static void runNodes(Properties config, int nodes, File work) throws Exception {
+
+        Process[] processes = new Process[nodes];
+
+        String dataModelIDs = config.getProperty("prototype.dataModelIDs");
+
+        for (int i = 0; i < nodes; i++) {
+
+            config.setProperty("engine.leases.node", "node-" + i);
+
+            // each node uploads into input data models of its own
+            config.setProperty("prototype.dataModelIDs", dataModelIDs.replace("DataModel-input-", "DataModel-input-" + i + "-"));
+
+            File conf = new File(work, "node-" + i + ".properties");
+            Writer writer = new OutputStreamWriter(new FileOutputStream(conf), "UTF-8");
+
+            try {
+                config.store(writer, null);
+            }
+            finally {
+                writer.close();
+            }
+
+            ProcessBuilder builder = new ProcessBuilder(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java", "-cp", System.getProperty("java.class.path"), TaskProcessingUnit.class.getName(), "-conf=" + conf.getPath());
+            builder.redirectErrorStream(true);
+            builder.redirectOutput(new File(work, "node-" + i + ".log"));
+
+            processes[i] = builder.start();
+        }
+
+        for (Process process : processes) {
+            process.waitFor();
+        }
+    }
+
+    /**
+     * @return number of resources marked as done in the lease directory
+     */
+    private static long countDone(File leases) throws IOException {
+
+        long done = 0;
+
+        File[] markers = leases.listFiles();
+
+        if (markers != null) {
+
+            for (File marker : markers) {
+
+                if (marker.getName().endsWith(".done") && FileUtils.readFileToString(marker, "UTF-8").contains("\tdone\t")) {
+                    done++;
+                }
+            }
+        }
+
+        return done;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.benchmarks;
+
+import de.tu_dortmund.ub.data.util.XmlTransformer;
+import org.apache.commons.io.output.NullOutputStream;
+import org.jdom2.Document;
+import org.jdom2.input.SAXBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Preprocessing with 'preprocessing.xslt': JDOM-based {@link XmlTransformer#xmlOutputter} (file mode) and streaming
+ * {@link XmlTransformer#transform} ('preprocessing.streaming=true')
+ *
+ * Run from the project directory, so that the stylesheet 'xslt/cdata.xsl' is found.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-14
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlTransformerBenchmark {
+
+    @Param({ "xslt/cdata.xsl" })
+    public String xslt;
+
+    // small and large documents
+    @Param({ "10", "5000" })
+    public int records;
+
+    private String xml;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() throws Exception {
+
+        xml = Fixtures.xml(records, 20);
+        bytes = xml.getBytes("UTF-8");
+    }
+
+    @Benchmark
+    public String xmlOutputter() throws Exception {
+
+        Document document = new SAXBuilder().build(new StringReader(xml));
+
+        return XmlTransformer.xmlOutputter(document, xslt, null);
+    }
+
+    @Benchmark
+    public void transform() throws Exception {
+
+        XmlTransformer.transform(new StreamSource(new ByteArrayInputStream(bytes)), xslt, null, NullOutputStream.NULL_OUTPUT_STREAM);
+    }
+}
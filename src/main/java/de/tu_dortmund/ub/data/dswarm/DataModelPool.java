@@ -0,0 +1,322 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.dswarm;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.Consts;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.*;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.FileBody;
+import org.apache.http.entity.mime.content.StringBody;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.apache.log4j.Logger;
+
+import javax.json.*;
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Pool of input data models; each task leases one data model from upload to task execution
+ *
+ * Concurrent tasks must not upload into the same resource. The pool is filled
+ * <ul>
+ *     <li>with the data models listed in 'prototype.dataModelIDs' (comma separated; copies of the prototype data model
+ *     prepared in d:swarm), or</li>
+ *     <li>if 'engine.datamodels.provision' is set, with 'engine.datamodels.provision' (or 'engine.threads' if set to
+ *     'true') new data models which are created from the prototype data model at startup and deleted at shutdown, or</li>
+ *     <li>with the prototype data model only (default).</li>
+ * </ul>
+ *
+ * @author Dipl.-Math. Hans-Georg Becker, M.L.I.S. (UB Dortmund)
+ * @version 2015-05-05
+ *
+ */
+public class DataModelPool {
+
+    /**
+     * an input data model and the resource it reads from
+     */
+    public static class DataModel {
+
+        private final String id;
+        private final String resourceID;
+        private final String json;
+
+        private DataModel(String id, String resourceID, String json) {
+
+            this.id = id;
+            this.resourceID = resourceID;
+            this.json = json;
+        }
+
+        public String getID() {
+
+            return id;
+        }
+
+        public String getResourceID() {
+
+            return resourceID;
+        }
+    }
+
+    private Properties config = null;
+    private Logger logger = null;
+    private CloseableHttpClient httpclient = null;
+    private TaskTemplate template = null;
+
+    private BlockingQueue<DataModel> available = new LinkedBlockingQueue<DataModel>();
+    private ArrayList<DataModel> provisioned = new ArrayList<DataModel>();
+    private int size = 0;
+
+    public DataModelPool(Properties config, Logger logger, CloseableHttpClient httpclient, TaskTemplate template) {
+
+        this.config = config;
+        this.logger = logger;
+        this.httpclient = httpclient;
+        this.template = template;
+    }
+
+    /**
+     * fill the pool
+     *
+     * @param seed file used as the initial content of provisioned resources
+     * @throws Exception
+     */
+    public void load(File seed) throws Exception {
+
+        String dataModelIDs = config.getProperty("prototype.dataModelIDs");
+        String provision = config.getProperty("engine.datamodels.provision");
+
+        if (dataModelIDs != null && !dataModelIDs.trim().isEmpty()) {
+
+            for (String dataModelID : dataModelIDs.split(",")) {
+
+                String json = request(new HttpGet(config.getProperty("engine.dswarm.api") + "datamodels/" + dataModelID.trim()));
+                available.add(createDataModel(json));
+            }
+        }
+        else if (provision != null && !"false".equals(provision)) {
+
+            if (seed == null) {
+                throw new Exception("No file to provision data models with. Set 'engine.datamodels.seed'.");
+            }
+
+            int count = "true".equals(provision) ? Integer.parseInt(config.getProperty("engine.threads")) : Integer.parseInt(provision);
+
+            // (c) configuration of the resource of the prototype data model
+            String configurations = request(new HttpGet(config.getProperty("engine.dswarm.api") + "resources/" + template.snapshot().getInputResourceID() + "/configurations"));
+            JsonObject configuration = Json.createReader(IOUtils.toInputStream(configurations, "UTF-8")).readArray().getJsonObject(0);
+
+            for (int i = 1; i <= count; i++) {
+
+                DataModel dataModel = provision(seed, configuration, i);
+
+                provisioned.add(dataModel);
+                available.add(dataModel);
+            }
+        }
+        else {
+
+            // the prototype data model; its json is always taken from the task template
+            available.add(new DataModel(config.getProperty("prototype.dataModelID"), template.snapshot().getInputResourceID(), null));
+        }
+
+        this.size = available.size();
+
+        logger.info("[" + config.getProperty("service.name") + "] " + size + " input data model(s) in the pool.");
+    }
+
+    /**
+     * @return the number of data models in the pool
+     */
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * lease a data model; blocks until one is available
+     */
+    public DataModel lease() throws InterruptedException {
+
+        return available.take();
+    }
+
+    public void release(DataModel dataModel) {
+
+        available.add(dataModel);
+    }
+
+    /**
+     * @param snapshot documents of the prototype project used by the task
+     * @return the json of the given data model as needed for the task
+     */
+    public String getJson(DataModel dataModel, TaskTemplate.Snapshot snapshot) {
+
+        return dataModel.json != null ? dataModel.json : snapshot.getInputDataModel();
+    }
+
+    /**
+     * delete the data models and resources created by {@link #load(File)}
+     */
+    public void close() {
+
+        for (DataModel dataModel : provisioned) {
+
+            try {
+
+                request(new HttpDelete(config.getProperty("engine.dswarm.api") + "datamodels/" + dataModel.id));
+                request(new HttpDelete(config.getProperty("engine.dswarm.api") + "resources/" + dataModel.resourceID));
+            }
+            catch (Exception e) {
+
+                logger.error("[" + config.getProperty("service.name") + "] Deleting data model '" + dataModel.id + "' failed with a " + e.getClass().getSimpleName());
+            }
+        }
+
+        provisioned.clear();
+    }
+
+    /**
+     * create a copy of the prototype data model (see README: 1. Schritt)
+     */
+    private DataModel provision(File seed, JsonObject configuration, int i) throws Exception {
+
+        String name = config.getProperty("project.name") + " - worker " + i;
+
+        // (a) upload of the seed file
+        HttpPost httpPost = new HttpPost(config.getProperty("engine.dswarm.api") + "resources/");
+        httpPost.setEntity(MultipartEntityBuilder.create()
+                .addPart("file", new FileBody(seed))
+                .addPart("name", new StringBody(name, ContentType.TEXT_PLAIN))
+                .addPart("description", new StringBody("resource for " + name, ContentType.TEXT_PLAIN))
+                .build());
+
+        String resourceJson = request(httpPost);
+        String resourceID = Json.createReader(IOUtils.toInputStream(resourceJson, "UTF-8")).readObject().getString("uuid");
+
+        // (d) configuration of the new resource with the configuration of the prototype resource
+        JsonObjectBuilder configurationBuilder = Json.createObjectBuilder();
+
+        for (Map.Entry<String, JsonValue> entry : configuration.entrySet()) {
+
+            if (!"uuid".equals(entry.getKey()) && !"resources".equals(entry.getKey())) {
+                configurationBuilder.add(entry.getKey(), entry.getValue());
+            }
+        }
+
+        configurationBuilder.add("uuid", UUID.randomUUID().toString());
+
+        httpPost = new HttpPost(config.getProperty("engine.dswarm.api") + "resources/" + resourceID + "/configurations");
+        httpPost.setEntity(new StringEntity(configurationBuilder.build().toString(), ContentType.create("application/json", Consts.UTF_8)));
+
+        String configurationJson = request(httpPost);
+
+        // (e) definition of the data model
+        String dataModel = "{";
+        dataModel += "\"name\":\"" + name + "\",";
+        dataModel += "\"description\":\"data model for " + name + "\",";
+        dataModel += "\"configuration\":" + configurationJson + ",";
+        dataModel += "\"data_resource\":" + resourceJson;
+        dataModel += "}";
+
+        httpPost = new HttpPost(config.getProperty("engine.dswarm.api") + "datamodels");
+        httpPost.setEntity(new StringEntity(dataModel, ContentType.create("application/json", Consts.UTF_8)));
+
+        DataModel copy = createDataModel(request(httpPost));
+
+        logger.info("[" + config.getProperty("service.name") + "] provisioned data model : " + copy.id);
+
+        return copy;
+    }
+
+    private DataModel createDataModel(String json) throws Exception {
+
+        JsonObject jsonObject = Json.createReader(IOUtils.toInputStream(json, "UTF-8")).readObject();
+
+        String resourceID = jsonObject.getJsonObject("configuration").getJsonArray("resources").getJsonObject(0).getString("uuid");
+
+        return new DataModel(jsonObject.getString("uuid"), resourceID, json);
+    }
+
+    private String request(HttpUriRequest request) throws Exception {
+
+        String responseJson = null;
+
+        CloseableHttpResponse httpResponse = httpclient.execute(request);
+
+        logger.info("[" + config.getProperty("service.name") + "] " + "request : " + request.getRequestLine());
+
+        try {
+
+            int statusCode = httpResponse.getStatusLine().getStatusCode();
+            HttpEntity httpEntity = httpResponse.getEntity();
+
+            switch (statusCode) {
+
+                case 200:
+                case 201:
+                case 204: {
+
+                    responseJson = "";
+
+                    if (httpEntity != null) {
+
+                        StringWriter writer = new StringWriter();
+                        IOUtils.copy(httpEntity.getContent(), writer, "UTF-8");
+                        responseJson = writer.toString();
+                    }
+
+                    break;
+                }
+                default: {
+
+                    logger.error("[" + config.getProperty("service.name") + "] " + statusCode + " : " + httpResponse.getStatusLine().getReasonPhrase());
+                }
+            }
+
+            EntityUtils.consume(httpEntity);
+        } finally {
+            httpResponse.close();
+        }
+
+        if (responseJson == null) {
+            throw new Exception("Request '" + request.getRequestLine() + "' failed.");
+        }
+
+        return responseJson;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.dswarm;
+
+import de.tu_dortmund.ub.data.util.FingerprintSet;
+import org.apache.log4j.Logger;
+import org.openrdf.model.*;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.RDFHandlerWrapper;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Run-wide deduplication of the result statements ('engine.dedup')
+ *
+ * A statement is dropped if a statement with the same subject, predicate, object and context has been written by any
+ * task of the run. Only a fingerprint of each statement is kept in a {@link FingerprintSet} off-heap:
+ * 'engine.dedup.bits' 64 (default; 8 bytes per statement, a false duplicate is to be expected after about 10^9
+ * statements) or 128 (16 bytes). 'engine.dedup.expected' statements (default 1000000) fit without resizing.
+ *
+ * The statements of a task are collected in a {@link Scope} of their own and count as written only when the task has
+ * succeeded, so a failed task does not suppress its statements in later tasks. Tasks running at the same time may
+ * both write a statement which neither of them has committed yet.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker, M.L.I.S. (UB Dortmund)
+ * @version 2015-05-22
+ *
+ */
+public class Deduplicator {
+
+    private static final long SEED_HIGH = 0x9E3779B97F4A7C15L;
+    private static final long SEED_LOW = 0xC2B2AE3D27D4EB4FL;
+
+    private Properties config = null;
+    private Logger logger = null;
+
+    private FingerprintSet fingerprints;
+    private boolean wide;
+
+    private AtomicLong duplicates = new AtomicLong();
+
+    public Deduplicator(Properties config, Logger logger) {
+
+        this.config = config;
+        this.logger = logger;
+
+        int bits = Integer.parseInt(config.getProperty("engine.dedup.bits", "64"));
+
+        this.fingerprints = new FingerprintSet(Long.parseLong(config.getProperty("engine.dedup.expected", "1000000")), bits);
+        this.wide = bits == 128;
+    }
+
+    /**
+     * @return true if the statement has not been seen in this run; thread-safe
+     */
+    public boolean isNew(Statement statement) {
+
+        long high = fingerprint(statement, SEED_HIGH);
+
+        return fingerprints.add(high, wide ? fingerprint(statement, SEED_LOW) : 0L);
+    }
+
+    /**
+     * @return scope for the statements of a task
+     */
+    public Scope scope() {
+
+        return new Scope();
+    }
+
+    /**
+     * statements written by one task; thread-safe
+     */
+    public class Scope {
+
+        // small and on the heap: grows with the result of the task and is collected with the scope
+        private final FingerprintSet written = new FingerprintSet(0L, wide ? 128 : 64, 2, false);
+
+        private Scope() {
+        }
+
+        /**
+         * @param handler handler of a task's result
+         * @param duplicates counts the statements dropped for the task
+         * @return a handler which passes only statements neither committed by another task nor written by this one
+         */
+        public RDFHandler filter(RDFHandler handler, final AtomicLong duplicates) {
+
+            return new RDFHandlerWrapper(handler) {
+
+                @Override
+                public void handleStatement(Statement statement) throws RDFHandlerException {
+
+                    long high = fingerprint(statement, SEED_HIGH);
+                    long low = wide ? fingerprint(statement, SEED_LOW) : 0L;
+
+                    if (!fingerprints.contains(high, low) && written.add(high, low)) {
+
+                        super.handleStatement(statement);
+                    }
+                    else {
+
+                        duplicates.incrementAndGet();
+                        Deduplicator.this.duplicates.incrementAndGet();
+                    }
+                }
+            };
+        }
+
+        /**
+         * the task has succeeded: its statements are dropped from the results of later tasks
+         */
+        public void commit() {
+
+            fingerprints.addAll(written);
+        }
+    }
+
+    /**
+     * log the number of distinct and duplicate statements of the run
+     */
+    public void close() {
+
+        logger.info("[" + config.getProperty("service.name") + "] " + "dedup: " + fingerprints.size() + " distinct statement(s), " + duplicates.get() + " duplicate(s) dropped, " + (fingerprints.getMemory() >> 20) + " MiB off-heap.");
+        System.out.println("[" + config.getProperty("service.name") + "] " + "dedup: " + fingerprints.size() + " distinct statement(s), " + duplicates.get() + " duplicate(s) dropped.");
+    }
+
+    /**
+     * hash of the terms of the statement; the kind of each term and the datatype and language of literals count
+     */
+    static long fingerprint(Statement statement, long seed) {
+
+        long h = seed;
+
+        h = hash(h, statement.getSubject());
+        h = hash(h, statement.getPredicate());
+        h = hash(h, statement.getObject());
+        h = hash(h, statement.getContext());
+
+        // finalizer of MurmurHash3
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+
+        return h;
+    }
+
+    private static long hash(long h, Value value) {
+
+        if (value == null) {
+            return mix(h, '0');
+        }
+
+        if (value instanceof Literal) {
+
+            Literal literal = (Literal) value;
+
+            h = hash(mix(h, '"'), literal.getLabel());
+
+            if (literal.getLanguage() != null) {
+                h = hash(mix(h, '@'), literal.getLanguage());
+            }
+            else if (literal.getDatatype() != null) {
+                h = hash(mix(h, '^'), literal.getDatatype().stringValue());
+            }
+
+            return h;
+        }
+
+        return hash(mix(h, value instanceof BNode ? '_' : '<'), value.stringValue());
+    }
+
+    private static long hash(long h, String value) {
+
+        for (int i = 0; i < value.length(); i++) {
+            h = mix(h, value.charAt(i));
+        }
+
+        // the length separates the terms
+        return mix(h, value.length());
+    }
+
+    private static long mix(long h, int c) {
+
+        h ^= c;
+        h *= 0x100000001B3L;
+
+        return h ^ (h >>> 29);
+    }
+}
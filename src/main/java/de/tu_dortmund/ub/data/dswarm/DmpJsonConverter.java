@@ -0,0 +1,297 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.dswarm;
+
+import org.apache.log4j.Logger;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+
+import javax.json.Json;
+import javax.json.stream.JsonParser;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Streaming converter for the DMP JSON result of a d:swarm task
+ *
+ * The result array is read record by record with a {@link JsonParser}; the statements of each record are handed
+ * to an {@link RDFHandler} as soon as the record is complete. Only one record is kept in memory, so duplicate
+ * statements are removed per record (i.e. per subject). Terms are created by a {@link TermFactory}.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker, M.L.I.S. (UB Dortmund)
+ * @version 2015-04-27
+ *
+ */
+public class DmpJsonConverter {
+
+    private static final String RECORD_ID = "__record_id";
+    private static final String RECORD_DATA = "__record_data";
+
+    // interned predicates and types
+    private static final int CACHE_SIZE = 4096;
+
+    private ValueFactory factory = ValueFactoryImpl.getInstance();
+    private TermFactory terms = new TermFactory(factory, CACHE_SIZE);
+
+    private URI graphUri;
+    private Logger logger;
+
+    private long records = 0L;
+
+    public DmpJsonConverter(URI graphUri, Logger logger) {
+
+        this.graphUri = graphUri;
+        this.logger = logger;
+    }
+
+    /**
+     * receives the records read by {@link #read(InputStream, RecordHandler)}
+     */
+    interface RecordHandler {
+
+        /**
+         * @param recordId value of '__record_id' or null
+         * @param data pairs of predicate key and value of '__record_data'
+         */
+        void handleRecord(String recordId, List<String[]> data) throws RDFHandlerException;
+    }
+
+    /**
+     * convert the DMP JSON in the given stream; startRDF() and endRDF() are left to the caller
+     *
+     * @param inputStream
+     * @param handler
+     * @return number of statements handled
+     * @throws RDFHandlerException
+     */
+    public long convert(InputStream inputStream, final RDFHandler handler) throws RDFHandlerException {
+
+        final long[] statements = { 0L };
+
+        read(inputStream, new RecordHandler() {
+
+            @Override
+            public void handleRecord(String recordId, List<String[]> data) throws RDFHandlerException {
+
+                for (Statement statement : statements(recordId, data)) {
+
+                    handler.handleStatement(statement);
+                    statements[0]++;
+                }
+            }
+        });
+
+        return statements[0];
+    }
+
+    /**
+     * read the records of the DMP JSON in the given stream without creating statements
+     *
+     * @param inputStream
+     * @param handler
+     * @throws RDFHandlerException
+     */
+    void read(InputStream inputStream, RecordHandler handler) throws RDFHandlerException {
+
+        JsonParser parser = Json.createParser(inputStream);
+
+        try {
+
+            if (!parser.hasNext() || parser.next() != JsonParser.Event.START_ARRAY) {
+                throw new RDFHandlerException("DMP JSON result is not an array of records.");
+            }
+
+            while (parser.hasNext()) {
+
+                JsonParser.Event event = parser.next();
+
+                if (event == JsonParser.Event.END_ARRAY) {
+                    break;
+                }
+                else if (event == JsonParser.Event.START_OBJECT) {
+
+                    readRecord(parser, handler);
+                    records++;
+                }
+                else {
+
+                    skip(parser, event);
+                }
+            }
+        }
+        finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * @return number of records converted by this converter
+     */
+    public long getRecords() {
+
+        return records;
+    }
+
+    /**
+     * read one record object; the parser is positioned after its START_OBJECT
+     */
+    private void readRecord(JsonParser parser, RecordHandler handler) throws RDFHandlerException {
+
+        String recordId = null;
+
+        // pairs of predicate key and value; buffered because '__record_id' may follow '__record_data'
+        ArrayList<String[]> data = new ArrayList<String[]>();
+
+        JsonParser.Event event;
+
+        while ((event = parser.next()) != JsonParser.Event.END_OBJECT) {
+
+            String key = parser.getString();
+            event = parser.next();
+
+            if (RECORD_ID.equals(key) && event == JsonParser.Event.VALUE_STRING) {
+
+                recordId = parser.getString();
+            }
+            else if (RECORD_DATA.equals(key) && event == JsonParser.Event.START_ARRAY) {
+
+                while ((event = parser.next()) != JsonParser.Event.END_ARRAY) {
+
+                    if (event == JsonParser.Event.START_OBJECT) {
+                        readTriple(parser, data);
+                    }
+                    else {
+                        skip(parser, event);
+                    }
+                }
+            }
+            else {
+
+                skip(parser, event);
+            }
+        }
+
+        handler.handleRecord(recordId, data);
+    }
+
+    /**
+     * @return the statements of one record without duplicates
+     */
+    LinkedHashSet<Statement> statements(String recordId, List<String[]> data) {
+
+        LinkedHashSet<Statement> statements = new LinkedHashSet<Statement>();
+
+        if (recordId == null) {
+
+            logger.info("Record without " + RECORD_ID + " skipped.");
+            return statements;
+        }
+
+        URI subject = terms.subject(recordId);
+
+        for (String[] pair : data) {
+
+            URI predicate = terms.predicate(pair[0]);
+            Value object = TermFactory.isType(pair[0]) ? terms.type(pair[1]) : terms.object(pair[1]);
+
+            statements.add(factory.createStatement(subject, predicate, object, graphUri));
+        }
+
+        return statements;
+    }
+
+    /**
+     * read one object of '__record_data'; the parser is positioned after its START_OBJECT
+     */
+    private void readTriple(JsonParser parser, ArrayList<String[]> data) {
+
+        JsonParser.Event event;
+
+        while ((event = parser.next()) != JsonParser.Event.END_OBJECT) {
+
+            String key = parser.getString();
+            event = parser.next();
+
+            switch (event) {
+
+                case VALUE_STRING: {
+
+                    data.add(new String[] { key, parser.getString() });
+                    break;
+                }
+                case START_ARRAY: {
+
+                    while ((event = parser.next()) != JsonParser.Event.END_ARRAY) {
+
+                        if (event == JsonParser.Event.VALUE_STRING) {
+                            data.add(new String[] { key, parser.getString() });
+                        }
+                        else {
+                            logger.info("Unhandled ValueType in ARRAY: " + event);
+                            skip(parser, event);
+                        }
+                    }
+                    break;
+                }
+                default: {
+
+                    logger.info("Unhandled ValueType: " + event);
+                    skip(parser, event);
+                }
+            }
+        }
+    }
+
+    /**
+     * skip the value starting with the given event
+     */
+    private void skip(JsonParser parser, JsonParser.Event event) {
+
+        if (event != JsonParser.Event.START_OBJECT && event != JsonParser.Event.START_ARRAY) {
+            return;
+        }
+
+        int depth = 1;
+
+        while (depth > 0) {
+
+            event = parser.next();
+
+            if (event == JsonParser.Event.START_OBJECT || event == JsonParser.Event.START_ARRAY) {
+                depth++;
+            }
+            else if (event == JsonParser.Event.END_OBJECT || event == JsonParser.Event.END_ARRAY) {
+                depth--;
+            }
+        }
+    }
+}
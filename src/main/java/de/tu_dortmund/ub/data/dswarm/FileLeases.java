@@ -0,0 +1,557 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.dswarm;
+
+import de.tu_dortmund.ub.data.util.Metrics;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coordination of several nodes sharing one watch folder ('engine.leases')
+ *
+ * Before a node processes a resource, it writes the lease file '&lt;resource&gt;.lease' (node and heartbeat) into the
+ * shared directory 'engine.leases'; when the task has finished, the lease is replaced by the marker
+ * '&lt;resource&gt;.done' (size and modification time of the resource, result and node). A resource with a marker for
+ * its current size and modification time or with a live lease of another node is not claimed. Each node renews its
+ * leases every 'engine.leases.ttl' / 3 seconds; a lease which has not been renewed for 'engine.leases.ttl' seconds
+ * (default 60) is taken over by another node. Expiry is measured by each observer with its own clock, so the clocks of
+ * the nodes need not be synchronized.
+ *
+ * All changes are made while holding a lock on 'engine.leases/.lock' ({@link FileChannel#lock()}), so the shared
+ * directory must support file locks (local file systems, NFSv4, SMB). The node is named by 'engine.leases.node'
+ * (default: process id and host name). The jobs of a job manifest ('engine.jobs') may share the directory; their
+ * leases are named '&lt;job&gt;/&lt;resource&gt;'.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker, M.L.I.S. (UB Dortmund)
+ * @version 2015-05-28
+ *
+ */
+public class FileLeases {
+
+    public enum State { FREE, CLAIMED, DONE }
+
+    private static final String LEASE = ".lease";
+    private static final String MARKER = ".done";
+
+    // file locks are held by the JVM, so the threads (and projects) of one node also synchronize on this object
+    private static final Object MUTEX = new Object();
+
+    private Properties config = null;
+    private Logger logger = null;
+
+    private Path directory;
+    private String scope;
+    private String node;
+    private long ttl;
+
+    // leases held by this node
+    private HashMap<String, Lease> leases = new HashMap<String, Lease>();
+
+    // leases of other nodes: last content seen and when it was seen first
+    private HashMap<String, Observation> observed = new HashMap<String, Observation>();
+
+    // expired leases already reported by awaitExpiry()
+    private HashSet<String> expired = new HashSet<String>();
+
+    private long beat = 0;
+
+    private ScheduledExecutorService heartbeat;
+
+    public FileLeases(Properties config, Logger logger) {
+
+        this.config = config;
+        this.logger = logger;
+
+        this.directory = Paths.get(config.getProperty("engine.leases"));
+        this.scope = config.getProperty(JobManifest.JOB) != null ? config.getProperty(JobManifest.JOB) + "/" : "";
+        this.node = config.getProperty("engine.leases.node", ManagementFactory.getRuntimeMXBean().getName());
+        this.ttl = Long.parseLong(config.getProperty("engine.leases.ttl", "60")) * 1000L;
+    }
+
+    /**
+     * create the shared directory and start the heartbeat
+     *
+     * @throws IOException
+     */
+    public void open() throws IOException {
+
+        Files.createDirectories(directory);
+
+        heartbeat = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "lease-heartbeat");
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+
+        heartbeat.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+
+                try {
+
+                    beat();
+                }
+                catch (IOException e) {
+
+                    logger.error("[" + config.getProperty("service.name") + "] " + "Renewing the leases in " + directory + " failed: " + e.getMessage());
+                }
+            }
+        }, ttl / 3, ttl / 3, TimeUnit.MILLISECONDS);
+
+        logger.info("[" + config.getProperty("service.name") + "] " + "Node '" + node + "' shares " + directory + ".");
+    }
+
+    public String getNode() {
+
+        return node;
+    }
+
+    /**
+     * @param name name of the resource
+     * @param resource the resource; its size and modification time tell whether a marker is current
+     * @return DONE if the resource has been processed, CLAIMED if a node holds a live lease on it, otherwise FREE
+     * @throws IOException
+     */
+    public State state(String name, File resource) throws IOException {
+
+        synchronized (MUTEX) {
+
+            FileChannel lock = lock();
+
+            try {
+
+                return stateOf(name, stamp(resource));
+            }
+            finally {
+                lock.close();
+            }
+        }
+    }
+
+    /**
+     * @param name name of the resource
+     * @param resource the resource
+     * @return the lease or null if the resource has been processed or is claimed by a node
+     * @throws IOException
+     */
+    public Lease claim(String name, File resource) throws IOException {
+
+        synchronized (MUTEX) {
+
+            FileChannel lock = lock();
+
+            try {
+
+                String stamp = stamp(resource);
+
+                if (stateOf(name, stamp) != State.FREE) {
+                    return null;
+                }
+
+                String expired = read(file(name, LEASE));
+
+                if (expired != null) {
+
+                    logger.warn("[" + config.getProperty("service.name") + "] " + "Lease of node '" + owner(expired) + "' on '" + name + "' expired. Taking it over.");
+                    Metrics.counter("tpu_leases_total", "result=\"taken_over\"").increment();
+                }
+
+                write(file(name, LEASE), node + "\t" + beat);
+                observed.remove(name);
+
+                Lease lease = new Lease(name, stamp);
+                leases.put(name, lease);
+
+                Metrics.counter("tpu_leases_total", "result=\"claimed\"").increment();
+
+                return lease;
+            }
+            finally {
+                lock.close();
+            }
+        }
+    }
+
+    /**
+     * wait until a lease of another node expires; each expired lease is reported once (it may belong to a resource
+     * which has been removed)
+     *
+     * @return true if a lease has expired, false if no other node holds a live lease
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public boolean awaitExpiry() throws IOException, InterruptedException {
+
+        while (true) {
+
+            boolean live = false;
+
+            synchronized (MUTEX) {
+
+                FileChannel lock = lock();
+
+                try {
+
+                    for (String name : list(LEASE)) {
+
+                        String content = read(file(name, LEASE));
+
+                        if (content == null || leases.containsKey(name)) {
+                            continue;
+                        }
+
+                        if (!isExpired(name, content)) {
+
+                            live = true;
+                        }
+                        else if (expired.add(name + "\t" + content)) {
+
+                            return true;
+                        }
+                    }
+                }
+                finally {
+                    lock.close();
+                }
+            }
+
+            if (!live) {
+                return false;
+            }
+
+            // the other nodes may finish long before a lease could expire
+            Thread.sleep(Math.min(ttl / 3, 1000L));
+        }
+    }
+
+    /**
+     * stop the heartbeat and give up the leases still held (their resources are free again)
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+        }
+
+        synchronized (MUTEX) {
+
+            if (leases.isEmpty()) {
+                return;
+            }
+
+            FileChannel lock = lock();
+
+            try {
+
+                for (Lease lease : new ArrayList<Lease>(leases.values())) {
+                    lease.end(null);
+                }
+            }
+            finally {
+                lock.close();
+            }
+        }
+    }
+
+    /**
+     * renew the leases held by this node
+     *
+     * @throws IOException
+     */
+    void beat() throws IOException {
+
+        synchronized (MUTEX) {
+
+            if (leases.isEmpty()) {
+                return;
+            }
+
+            FileChannel lock = lock();
+
+            try {
+
+                beat++;
+
+                for (Lease lease : new ArrayList<Lease>(leases.values())) {
+
+                    String content = read(file(lease.name, LEASE));
+
+                    if (content != null && node.equals(owner(content))) {
+
+                        write(file(lease.name, LEASE), node + "\t" + beat);
+                    }
+                    else {
+
+                        // the lease expired (e.g. during a long pause of this node) and has been taken over
+                        logger.warn("[" + config.getProperty("service.name") + "] " + "Lease on '" + lease.name + "' has been lost to node '" + (content != null ? owner(content) : "?") + "'.");
+                        Metrics.counter("tpu_leases_total", "result=\"lost\"").increment();
+
+                        leases.remove(lease.name);
+                    }
+                }
+            }
+            finally {
+                lock.close();
+            }
+        }
+    }
+
+    private State stateOf(String name, String stamp) throws IOException {
+
+        String marker = read(file(name, MARKER));
+
+        if (marker != null && marker.startsWith(stamp + "\t")) {
+            return State.DONE;
+        }
+
+        String content = read(file(name, LEASE));
+
+        if (content == null) {
+            return State.FREE;
+        }
+
+        if (node.equals(owner(content))) {
+
+            // a lease left over by an earlier process with the same node name is free
+            return leases.containsKey(name) ? State.CLAIMED : State.FREE;
+        }
+
+        return isExpired(name, content) ? State.FREE : State.CLAIMED;
+    }
+
+    private boolean isExpired(String name, String content) {
+
+        long now = System.currentTimeMillis();
+
+        Observation observation = observed.get(name);
+
+        if (observation == null || !observation.content.equals(content)) {
+
+            // renewed since the last look
+            observed.put(name, new Observation(content, now));
+
+            return false;
+        }
+
+        return now - observation.since >= ttl;
+    }
+
+    private FileChannel lock() throws IOException {
+
+        FileChannel channel = FileChannel.open(directory.resolve(".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+        try {
+
+            channel.lock();
+        }
+        catch (IOException e) {
+
+            channel.close();
+            throw e;
+        }
+
+        // closing the channel releases the lock
+        return channel;
+    }
+
+    private ArrayList<String> list(String suffix) throws IOException {
+
+        ArrayList<String> names = new ArrayList<String>();
+
+        DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + suffix);
+
+        try {
+
+            for (Path path : stream) {
+
+                String fileName = path.getFileName().toString();
+                String name = URLDecoder.decode(fileName.substring(0, fileName.length() - suffix.length()), "UTF-8");
+
+                // leases of other jobs
+                if (name.startsWith(scope)) {
+                    names.add(name.substring(scope.length()));
+                }
+            }
+        }
+        finally {
+            stream.close();
+        }
+
+        return names;
+    }
+
+    private Path file(String name, String suffix) throws IOException {
+
+        return directory.resolve(URLEncoder.encode(scope + name, "UTF-8") + suffix);
+    }
+
+    private String read(Path path) throws IOException {
+
+        try {
+
+            return new String(Files.readAllBytes(path), "UTF-8");
+        }
+        catch (NoSuchFileException e) {
+
+            return null;
+        }
+    }
+
+    private void write(Path path, String content) throws IOException {
+
+        // a crash while writing leaves the temporary file, not a truncated lease
+        Path temp = directory.resolve("." + URLEncoder.encode(node, "UTF-8") + ".tmp");
+
+        Files.write(temp, content.getBytes("UTF-8"));
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String owner(String content) {
+
+        int tab = content.indexOf('\t');
+
+        return tab < 0 ? content : content.substring(0, tab);
+    }
+
+    private static String stamp(File resource) {
+
+        return resource.length() + "-" + resource.lastModified();
+    }
+
+    private static class Observation {
+
+        private final String content;
+        private final long since;
+
+        private Observation(String content, long since) {
+
+            this.content = content;
+            this.since = since;
+        }
+    }
+
+    /**
+     * lease of this node on a resource
+     */
+    public class Lease {
+
+        private final String name;
+        private final String stamp;
+
+        private Lease(String name, String stamp) {
+
+            this.name = name;
+            this.stamp = stamp;
+        }
+
+        /**
+         * mark the resource as processed and give up the lease
+         *
+         * @param result e.g. {@link Manifest#DONE} or {@link Manifest#FAILED}; failed resources are not claimed again
+         *               until they change
+         * @throws IOException
+         */
+        public void complete(String result) throws IOException {
+
+            synchronized (MUTEX) {
+
+                FileChannel lock = lock();
+
+                try {
+
+                    end(result);
+                }
+                finally {
+                    lock.close();
+                }
+            }
+        }
+
+        /**
+         * give up the lease without marking the resource (it is free again)
+         *
+         * @throws IOException
+         */
+        public void release() throws IOException {
+
+            synchronized (MUTEX) {
+
+                FileChannel lock = lock();
+
+                try {
+
+                    end(null);
+                }
+                finally {
+                    lock.close();
+                }
+            }
+        }
+
+        /**
+         * @param result marker to write; null to free the resource without a marker
+         */
+        private void end(String result) throws IOException {
+
+            if (leases.remove(name) == null) {
+                return;
+            }
+
+            if (result != null) {
+                write(file(name, MARKER), stamp + "\t" + result + "\t" + node);
+            }
+
+            String content = read(file(name, LEASE));
+
+            if (content != null && node.equals(owner(content))) {
+                Files.delete(file(name, LEASE));
+            }
+        }
+    }
+}
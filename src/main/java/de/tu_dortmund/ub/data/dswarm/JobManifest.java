@@ -0,0 +1,123 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.dswarm;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Job manifest of a run with several projects ('engine.jobs')
+ *
+ * The manifest lists the jobs in 'jobs' (comma separated). Each job is configured by the keys prefixed with its name,
+ * e.g. 'loksys.resource.watchfolder', 'loksys.prototype.dataModelID', 'loksys.results.folder' or
+ * 'loksys.results.rdf.format', which override the keys of the main configuration for this job; '&lt;job&gt;.weight'
+ * (default 1) is its share of the workers. Unless a job sets its own 'engine.manifest', it journals to
+ * '&lt;engine.manifest&gt;.&lt;job&gt;', so the jobs do not append to the same journal.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker, M.L.I.S. (UB Dortmund)
+ * @version 2015-05-26
+ *
+ */
+public class JobManifest {
+
+    /**
+     * name of the job in its configuration
+     */
+    public static final String JOB = "job.name";
+
+    /**
+     * weight of the job in its configuration
+     */
+    public static final String WEIGHT = "job.weight";
+
+    /**
+     * @param config main configuration
+     * @return the configuration of each job
+     * @throws IOException
+     */
+    public static List<Properties> load(Properties config) throws IOException {
+
+        Properties manifest = new Properties();
+
+        Reader reader = new InputStreamReader(new FileInputStream(config.getProperty("engine.jobs")), "UTF-8");
+
+        try {
+            manifest.load(reader);
+        }
+        finally {
+            reader.close();
+        }
+
+        return load(config, manifest);
+    }
+
+    static List<Properties> load(Properties config, Properties manifest) {
+
+        ArrayList<Properties> jobs = new ArrayList<Properties>();
+
+        String names = manifest.getProperty("jobs", "");
+
+        for (String name : names.split(",")) {
+
+            name = name.trim();
+
+            if (name.isEmpty()) {
+                continue;
+            }
+
+            Properties job = new Properties();
+            job.putAll(config);
+
+            // messages of the job's tasks name the job
+            job.setProperty("service.name", config.getProperty("service.name") + " / " + name);
+
+            for (String key : manifest.stringPropertyNames()) {
+
+                if (key.startsWith(name + ".")) {
+                    job.setProperty(key.substring(name.length() + 1), manifest.getProperty(key));
+                }
+            }
+
+            // one journal per job
+            if (config.getProperty("engine.manifest") != null && manifest.getProperty(name + ".engine.manifest") == null) {
+                job.setProperty("engine.manifest", config.getProperty("engine.manifest") + "." + name);
+            }
+
+            job.setProperty(JOB, name);
+            job.setProperty(WEIGHT, job.getProperty("weight", "1"));
+            job.remove("weight");
+
+            jobs.add(job);
+        }
+
+        if (jobs.isEmpty()) {
+            throw new IllegalArgumentException("No jobs in '" + config.getProperty("engine.jobs") + "'.");
+        }
+
+        return jobs;
+    }
+}
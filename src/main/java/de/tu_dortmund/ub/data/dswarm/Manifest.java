@@ -0,0 +1,267 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.dswarm;
+
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Properties;
+
+/**
+ * Journal of the processed resources ('engine.manifest')
+ *
+ * Every stage of a task is appended as a line 'time, resource, content hash, version, stage, output' (tab separated)
+ * and forced to disk. The version is a hash of the mappings and the output data model of the prototype project and of
+ * 'results.rdf.format'. It is taken from the current snapshot of the task template, and a task switches to the
+ * version of the snapshot it actually runs with ({@link #key(String, TaskTemplate.Snapshot)}), so a template
+ * revalidated during the run is journaled with its new version. A resource whose last stage for the same content and
+ * version is 'done' (and whose output still exists) is skipped, so an interrupted run resumes with the resources not
+ * yet done. Each manifest needs a journal of its own (the jobs of 'engine.jobs' get '&lt;engine.manifest&gt;.&lt;job&gt;').
+ *
+ * @author Dipl.-Math. Hans-Georg Becker, M.L.I.S. (UB Dortmund)
+ * @version 2015-05-07
+ *
+ */
+public class Manifest {
+
+    public static final String STARTED = "started";
+    public static final String UPLOADED = "uploaded";
+    public static final String EXECUTED = "executed";
+    public static final String DONE = "done";
+    public static final String FAILED = "failed";
+
+    private Properties config = null;
+    private Logger logger = null;
+
+    private File journal;
+    private TaskTemplate template;
+
+    // version of the last snapshot of the template
+    private TaskTemplate.Snapshot versioned;
+    private String version;
+
+    // last {stage, output} per key
+    private HashMap<String, String[]> entries = new HashMap<String, String[]>();
+
+    private FileOutputStream out;
+    private Writer writer;
+
+    public Manifest(Properties config, Logger logger, TaskTemplate template) {
+
+        this.config = config;
+        this.logger = logger;
+
+        this.journal = new File(config.getProperty("engine.manifest"));
+        this.template = template;
+    }
+
+    /**
+     * read the journal and open it for appending
+     *
+     * @throws IOException
+     */
+    public void open() throws IOException {
+
+        if (journal.exists()) {
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journal), "UTF-8"));
+
+            try {
+
+                String line;
+
+                while ((line = reader.readLine()) != null) {
+
+                    String[] fields = line.split("\t", -1);
+
+                    // a line cut off by a crash is ignored
+                    if (fields.length == 6) {
+                        entries.put(fields[1] + "\t" + fields[2] + "\t" + fields[3], new String[] { fields[4], fields[5] });
+                    }
+                }
+            }
+            finally {
+                reader.close();
+            }
+        }
+
+        this.out = new FileOutputStream(journal, true);
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+
+        logger.info("[" + config.getProperty("service.name") + "] " + entries.size() + " entries in manifest '" + journal + "'.");
+    }
+
+    /**
+     * @param file resource or chunk to hash
+     * @param name name of the resource; chunks are named '&lt;resource&gt;#&lt;part&gt;'
+     * @return key of the resource for the current content and version
+     * @throws IOException
+     */
+    public String key(File file, String name) throws IOException {
+
+        MessageDigest digest = digest();
+
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(file));
+
+        try {
+
+            byte[] buffer = new byte[8192];
+            int n;
+
+            while ((n = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        finally {
+            inputStream.close();
+        }
+
+        return name + "\t" + hex(digest.digest()) + "\t" + version(template.snapshot());
+    }
+
+    /**
+     * @param key key of a resource
+     * @param snapshot snapshot of the template a task runs with
+     * @return the key of the resource for the version of the snapshot
+     */
+    public String key(String key, TaskTemplate.Snapshot snapshot) {
+
+        return key.substring(0, key.lastIndexOf('\t') + 1) + version(snapshot);
+    }
+
+    private synchronized String version(TaskTemplate.Snapshot snapshot) {
+
+        if (snapshot != versioned) {
+
+            version = hash(snapshot.getMappings() + "\n" + snapshot.getOutputDataModel() + "\n" + config.getProperty("results.rdf.format"));
+            versioned = snapshot;
+        }
+
+        return version;
+    }
+
+    /**
+     * @return true if the resource has been processed and its outputs (separated by {@link File#pathSeparator}) still
+     * exist
+     */
+    public synchronized boolean isDone(String key) {
+
+        String[] entry = entries.get(key);
+
+        if (entry == null || !DONE.equals(entry[0])) {
+            return false;
+        }
+
+        if (!entry[1].isEmpty()) {
+
+            for (String output : entry[1].split(File.pathSeparator)) {
+
+                if (!new File(output).exists()) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the output recorded for the last stage of the resource or an empty string
+     */
+    public synchronized String getOutput(String key) {
+
+        String[] entry = entries.get(key);
+
+        return entry != null ? entry[1] : "";
+    }
+
+    /**
+     * append a stage of a resource to the journal
+     *
+     * @param key
+     * @param stage
+     * @param output result file or empty
+     */
+    public synchronized void record(String key, String stage, String output) {
+
+        entries.put(key, new String[] { stage, output });
+
+        try {
+
+            writer.write(System.currentTimeMillis() + "\t" + key + "\t" + stage + "\t" + output + "\n");
+            writer.flush();
+            out.getFD().sync();
+        }
+        catch (IOException e) {
+
+            logger.error("[" + config.getProperty("service.name") + "] Writing manifest '" + journal + "' failed with a " + e.getClass().getSimpleName());
+        }
+    }
+
+    public synchronized void close() throws IOException {
+
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private static String hash(String value) {
+
+        try {
+
+            return hex(digest().digest(value.getBytes("UTF-8")));
+        }
+        catch (UnsupportedEncodingException e) {
+
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MessageDigest digest() {
+
+        try {
+
+            return MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e) {
+
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+
+        StringBuilder hex = new StringBuilder();
+
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+
+        return hex.toString();
+    }
+}
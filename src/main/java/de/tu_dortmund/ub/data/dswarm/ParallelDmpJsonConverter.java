@@ -0,0 +1,217 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.dswarm;
+
+import org.apache.log4j.Logger;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Parallel converter for the DMP JSON result of a d:swarm task
+ *
+ * The result is read by the calling thread; batches of 'batchSize' records are converted on a {@link ForkJoinPool}.
+ * Each of the given handlers is a shard: a batch is written to one shard at a time, so the handlers need not be
+ * thread-safe, but the statements of different batches are not in the order of the result. This suits line-based
+ * formats like N-Quads and N-Triples, whose shards can be concatenated or kept as parts.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker, M.L.I.S. (UB Dortmund)
+ * @version 2015-05-18
+ *
+ */
+public class ParallelDmpJsonConverter {
+
+    private URI graphUri;
+    private Logger logger;
+    private ForkJoinPool pool;
+    private int batchSize;
+
+    private DmpJsonConverter reader;
+
+    public ParallelDmpJsonConverter(URI graphUri, Logger logger, ForkJoinPool pool, int batchSize) {
+
+        this.graphUri = graphUri;
+        this.logger = logger;
+        this.pool = pool;
+        this.batchSize = batchSize;
+
+        this.reader = new DmpJsonConverter(graphUri, logger);
+    }
+
+    /**
+     * convert the DMP JSON in the given stream; startRDF() and endRDF() of the shards are left to the caller
+     *
+     * @param inputStream
+     * @param shards handlers which receive the statements
+     * @return number of statements handled
+     * @throws RDFHandlerException
+     */
+    public long convert(InputStream inputStream, final List<? extends RDFHandler> shards) throws RDFHandlerException {
+
+        // one converter per shard: the term factories are not thread-safe
+        final DmpJsonConverter[] converters = new DmpJsonConverter[shards.size()];
+        final BlockingQueue<Integer> free = new LinkedBlockingQueue<Integer>();
+
+        for (int i = 0; i < converters.length; i++) {
+
+            converters[i] = new DmpJsonConverter(graphUri, logger);
+            free.add(i);
+        }
+
+        // at most one batch per shard in flight, so a batch never waits for a shard
+        final ArrayDeque<Future<Long>> inFlight = new ArrayDeque<Future<Long>>();
+        final long[] statements = { 0L };
+
+        final ArrayList<String> recordIds = new ArrayList<String>(batchSize);
+        final ArrayList<List<String[]>> recordData = new ArrayList<List<String[]>>(batchSize);
+
+        boolean read = false;
+
+        try {
+
+            reader.read(inputStream, new DmpJsonConverter.RecordHandler() {
+
+                @Override
+                public void handleRecord(String recordId, List<String[]> data) throws RDFHandlerException {
+
+                    recordIds.add(recordId);
+                    recordData.add(data);
+
+                    if (recordIds.size() >= batchSize) {
+
+                        if (inFlight.size() >= converters.length) {
+                            statements[0] += await(inFlight.poll());
+                        }
+
+                        inFlight.add(submit(new ArrayList<String>(recordIds), new ArrayList<List<String[]>>(recordData), converters, shards, free));
+
+                        recordIds.clear();
+                        recordData.clear();
+                    }
+                }
+            });
+
+            if (!recordIds.isEmpty()) {
+                inFlight.add(submit(recordIds, recordData, converters, shards, free));
+            }
+
+            read = true;
+        }
+        finally {
+
+            // the shards must not be written to after this method returned
+            RDFHandlerException error = null;
+
+            while (!inFlight.isEmpty()) {
+
+                try {
+                    statements[0] += await(inFlight.poll());
+                }
+                catch (RDFHandlerException e) {
+
+                    if (error == null) {
+                        error = e;
+                    }
+                }
+            }
+
+            // an error of the reader takes precedence
+            if (read && error != null) {
+                throw error;
+            }
+        }
+
+        return statements[0];
+    }
+
+    /**
+     * @return number of records read by this converter
+     */
+    public long getRecords() {
+
+        return reader.getRecords();
+    }
+
+    private Future<Long> submit(final List<String> recordIds, final List<List<String[]>> recordData, final DmpJsonConverter[] converters, final List<? extends RDFHandler> shards, final BlockingQueue<Integer> free) {
+
+        return pool.submit(new Callable<Long>() {
+
+            @Override
+            public Long call() throws Exception {
+
+                int shard = free.take();
+
+                try {
+
+                    long statements = 0L;
+
+                    RDFHandler handler = shards.get(shard);
+
+                    for (int i = 0; i < recordIds.size(); i++) {
+
+                        for (Statement statement : converters[shard].statements(recordIds.get(i), recordData.get(i))) {
+
+                            handler.handleStatement(statement);
+                            statements++;
+                        }
+                    }
+
+                    return statements;
+                }
+                finally {
+                    free.add(shard);
+                }
+            }
+        });
+    }
+
+    private long await(Future<Long> future) throws RDFHandlerException {
+
+        try {
+
+            return future.get();
+        }
+        catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+            throw new RDFHandlerException("Conversion interrupted.", e);
+        }
+        catch (ExecutionException e) {
+
+            if (e.getCause() instanceof RDFHandlerException) {
+                throw (RDFHandlerException) e.getCause();
+            }
+
+            throw new RDFHandlerException(e.getCause());
+        }
+    }
+}
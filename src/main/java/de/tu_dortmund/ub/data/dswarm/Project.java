@@ -0,0 +1,463 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.dswarm;
+
+import de.tu_dortmund.ub.data.util.ResourceSplitter;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * One project of a run: the "prototype" project, its watch folder and everything its tasks share
+ *
+ * The task template, the pool of input data models and (if configured) the manifest, the repository, the
+ * deduplication and the leases shared with other nodes belong to the project; the http client and the worker threads are shared by all projects of a run.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker, M.L.I.S. (UB Dortmund)
+ * @version 2015-05-26
+ *
+ */
+public class Project {
+
+    private Properties config = null;
+    private Logger logger = null;
+    private CloseableHttpClient httpclient = null;
+
+    private TaskTemplate template;
+    private DataModelPool dataModels;
+    private Manifest manifest;
+    private RepositorySink sink;
+    private Deduplicator deduplicator;
+    private FileLeases leases;
+
+    public Project(Properties config, Logger logger, CloseableHttpClient httpclient) {
+
+        this.config = config;
+        this.logger = logger;
+        this.httpclient = httpclient;
+    }
+
+    public Properties getConfig() {
+
+        return config;
+    }
+
+    /**
+     * load the task template and the input data models; open the manifest, the repository, the deduplication and the
+     * leases
+     *
+     * @return false if the project cannot be processed (the reason has been logged)
+     * @throws Exception
+     */
+    public boolean open() throws Exception {
+
+        // mappings and data models of the prototype project are fetched once for all tasks
+        template = new TaskTemplate(config, logger, httpclient);
+
+        try {
+
+            template.load();
+        }
+        catch (Exception e) {
+
+            logger.error("[" + config.getProperty("service.name") + "] " + "Could not load the task template: " + e.getMessage());
+            System.out.println("[" + config.getProperty("service.name") + "] " + "Could not load the task template: " + e.getMessage());
+
+            return false;
+        }
+
+        // input data models leased by the tasks
+        dataModels = new DataModelPool(config, logger, httpclient, template);
+
+        try {
+
+            dataModels.load(getSeedFile());
+        }
+        catch (Exception e) {
+
+            logger.error("[" + config.getProperty("service.name") + "] " + "Could not load the input data models: " + e.getMessage());
+            System.out.println("[" + config.getProperty("service.name") + "] " + "Could not load the input data models: " + e.getMessage());
+
+            dataModels.close();
+            dataModels = null;
+
+            return false;
+        }
+
+        if (dataModels.size() < Integer.parseInt(config.getProperty("engine.threads"))) {
+
+            logger.warn("[" + config.getProperty("service.name") + "] " + "Only " + dataModels.size() + " input data model(s) for " + config.getProperty("engine.threads") + " threads. Tasks wait for a free data model.");
+        }
+
+        // journal of the processed resources
+        if (config.getProperty("engine.manifest") != null) {
+
+            manifest = new Manifest(config, logger, template);
+            manifest.open();
+        }
+
+        // repository which receives the results
+        if (config.getProperty("results.repository") != null) {
+
+            sink = new RepositorySink(config, logger);
+            sink.open();
+        }
+
+        // run-wide deduplication of the statements
+        if (Boolean.parseBoolean(config.getProperty("engine.dedup"))) {
+            deduplicator = new Deduplicator(config, logger);
+        }
+
+        // other nodes processing the same watch folder
+        if (config.getProperty("engine.leases") != null) {
+
+            leases = new FileLeases(config, logger);
+            leases.open();
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the tasks for the files in 'resource.watchfolder' in the order of 'engine.scheduling'
+     * @throws IOException
+     */
+    public List<Task> createTasks() throws IOException {
+
+        String[] files = new File(config.getProperty("resource.watchfolder")).list();
+        logger.info("[" + config.getProperty("service.name") + "] " + "Files in " + config.getProperty("resource.watchfolder"));
+        logger.info(Arrays.toString(files));
+        System.out.println("[" + config.getProperty("service.name") + "] " + "Files in " + config.getProperty("resource.watchfolder"));
+        System.out.println(Arrays.toString(files));
+
+        // create job list
+        LinkedList<Task> tasks = new LinkedList<Task>();
+
+        if (files == null) {
+            return tasks;
+        }
+
+        for (ScheduledFile file : schedule(files)) {
+
+            Task task;
+
+            if (file.part > 0) {
+
+                task = new Task(config, logger, httpclient, template, dataModels, file.chunk, file.resource.getName(), file.part);
+            }
+            else {
+
+                task = new Task(config, logger, httpclient, template, dataModels, file.name);
+            }
+
+            if (manifest != null) {
+                task.setManifest(manifest, file.key);
+            }
+
+            task.setSplit(file.split);
+
+            task.setSink(sink);
+            task.setDeduplicator(deduplicator);
+
+            if (leases != null && file.lease != null) {
+                task.setLeases(leases, file.lease, file.resource);
+            }
+
+            tasks.add(task);
+        }
+
+        return tasks;
+    }
+
+    /**
+     * @return a daemon which keeps watching 'resource.watchfolder'
+     */
+    public WatchFolderDaemon createDaemon() {
+
+        return new WatchFolderDaemon(config, logger, httpclient, template, dataModels, manifest, sink, deduplicator, leases);
+    }
+
+    /**
+     * batch mode with 'engine.leases': wait until another node stops renewing its leases, so its resources can be
+     * taken over
+     *
+     * @return true if there may be resources to take over, false if no other node holds a lease
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public boolean awaitExpiredLeases() throws IOException, InterruptedException {
+
+        return leases != null && leases.awaitExpiry();
+    }
+
+    /**
+     * close the leases, the deduplication, the repository and the manifest; delete provisioned data models
+     */
+    public void close() throws IOException {
+
+        if (leases != null) {
+            leases.close();
+        }
+
+        if (deduplicator != null) {
+            deduplicator.close();
+        }
+
+        if (sink != null) {
+            sink.close();
+        }
+
+        try {
+
+            if (manifest != null) {
+                manifest.close();
+            }
+        }
+        finally {
+
+            // delete provisioned data models
+            if (dataModels != null) {
+                dataModels.close();
+            }
+        }
+    }
+
+    /**
+     * @return the file used to provision input data models: 'engine.datamodels.seed' or the first file in 'resource.watchfolder'
+     */
+    private File getSeedFile() {
+
+        if (config.getProperty("engine.datamodels.seed") != null) {
+
+            return new File(config.getProperty("engine.datamodels.seed"));
+        }
+
+        File[] files = new File(config.getProperty("resource.watchfolder")).listFiles();
+
+        if (files != null) {
+
+            for (File file : files) {
+
+                if (file.isFile() && !file.getName().startsWith(".")) {
+                    return file;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * order the files according to 'engine.scheduling':
+     * 'lpt' (default) largest file first, 'spt' smallest file first, 'name' by file name, 'fifo' in listing order.
+     * Results are named after the file (and the number of the chunk), so they do not depend on the order.
+     * Files larger than 'splitter.threshold' are split into chunks which are scheduled like files of their own.
+     * Files (and chunks) marked as done in the manifest and, with 'engine.leases', files processed or claimed by another
+     * node are skipped. A split file which has been done as a whole is skipped without splitting it; with
+     * 'engine.leases', a file is leased as a whole before it is split, so only one node splits it.
+     *
+     * @param files
+     * @return ordered files
+     * @throws IOException
+     */
+    private List<ScheduledFile> schedule(String[] files) throws IOException {
+
+        ArrayList<ScheduledFile> scheduledFiles = new ArrayList<ScheduledFile>();
+
+        ResourceSplitter splitter = new ResourceSplitter(config);
+
+        for (String file : files) {
+
+            File resource = new File(config.getProperty("resource.watchfolder"), file);
+
+            String key = manifest != null ? manifest.key(resource, file) : null;
+
+            // a resource is split only if it has not been processed as a whole
+            if (key != null && manifest.isDone(key)) {
+
+                logger.info("[" + config.getProperty("service.name") + "] " + "'" + file + "' unchanged since the last run. Skipped.");
+                continue;
+            }
+
+            boolean accepted = splitter.accepts(resource);
+
+            FileLeases.Lease lease = null;
+
+            if (leases != null) {
+
+                // a file to be split is claimed here, its chunks are covered by this lease
+                if (accepted) {
+                    lease = leases.claim(file, resource);
+                }
+
+                if (accepted ? lease == null : leases.state(file, resource) != FileLeases.State.FREE) {
+
+                    logger.info("[" + config.getProperty("service.name") + "] " + "'" + file + "' processed or claimed by another node. Skipped.");
+                    continue;
+                }
+            }
+
+            List<File> chunks;
+
+            try {
+
+                chunks = accepted ? splitter.split(resource) : Collections.<File>emptyList();
+            }
+            catch (IOException e) {
+
+                if (lease != null) {
+                    lease.release();
+                }
+
+                throw e;
+            }
+
+            if (chunks.isEmpty()) {
+
+                // claimed again by the task
+                if (lease != null) {
+                    lease.release();
+                }
+
+                scheduledFiles.add(new ScheduledFile(file, resource.length(), null, 0, key, file, resource, null));
+            }
+            else {
+
+                logger.info("[" + config.getProperty("service.name") + "] " + "'" + file + "' split into " + chunks.size() + " chunks.");
+
+                SplitResource split = new SplitResource(manifest, key);
+                split.setLease(lease);
+
+                int part = 0;
+                for (File chunk : chunks) {
+
+                    part++;
+
+                    String chunkKey = manifest != null ? manifest.key(chunk, file + "#" + part) : null;
+
+                    if (chunkKey != null && manifest.isDone(chunkKey)) {
+
+                        logger.info("[" + config.getProperty("service.name") + "] " + "'" + chunk.getName() + "' unchanged since the last run. Skipped.");
+                        split.addDone(manifest.getOutput(chunkKey));
+                        chunk.delete();
+                        continue;
+                    }
+
+                    split.add();
+                    scheduledFiles.add(new ScheduledFile(chunk.getName(), chunk.length(), chunk, part, chunkKey, null, resource, split));
+                }
+
+                split.seal();
+            }
+        }
+
+        String policy = config.getProperty("engine.scheduling", "lpt");
+
+        switch (policy) {
+
+            case "lpt": {
+
+                Collections.sort(scheduledFiles, new Comparator<ScheduledFile>() {
+
+                    @Override
+                    public int compare(ScheduledFile f1, ScheduledFile f2) {
+
+                        return Long.compare(f2.size, f1.size);
+                    }
+                });
+                break;
+            }
+            case "spt": {
+
+                Collections.sort(scheduledFiles, new Comparator<ScheduledFile>() {
+
+                    @Override
+                    public int compare(ScheduledFile f1, ScheduledFile f2) {
+
+                        return Long.compare(f1.size, f2.size);
+                    }
+                });
+                break;
+            }
+            case "name": {
+
+                Collections.sort(scheduledFiles, new Comparator<ScheduledFile>() {
+
+                    @Override
+                    public int compare(ScheduledFile f1, ScheduledFile f2) {
+
+                        return f1.name.compareTo(f2.name);
+                    }
+                });
+                break;
+            }
+            case "fifo": {
+
+                break;
+            }
+            default: {
+
+                logger.warn("[" + config.getProperty("service.name") + "] " + "Unknown engine.scheduling '" + policy + "'. Using listing order.");
+            }
+        }
+
+        return scheduledFiles;
+    }
+
+    private static class ScheduledFile {
+
+        private final String name;
+        private final long size;
+
+        // chunk of a split file
+        private final File chunk;
+        private final int part;
+
+        // key in the manifest
+        private final String key;
+
+        // name of the lease (null for a chunk, which is covered by the lease on its resource) and the resource it covers
+        private final String lease;
+        private final File resource;
+
+        // the resource a chunk belongs to
+        private final SplitResource split;
+
+        private ScheduledFile(String name, long size, File chunk, int part, String key, String lease, File resource, SplitResource split) {
+
+            this.name = name;
+            this.size = size;
+            this.chunk = chunk;
+            this.part = part;
+            this.key = key;
+            this.lease = lease;
+            this.resource = resource;
+            this.split = split;
+        }
+    }
+}
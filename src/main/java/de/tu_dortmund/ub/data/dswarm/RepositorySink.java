@@ -0,0 +1,273 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.dswarm;
+
+import org.apache.log4j.Logger;
+import org.openrdf.model.Statement;
+import org.openrdf.repository.Repository;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryException;
+import org.openrdf.repository.sail.SailRepository;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+import org.openrdf.sail.Sail;
+import org.openrdf.sail.memory.MemoryStore;
+import org.openrdf.sail.nativerdf.NativeStore;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Embedded Sesame repository which receives the statements of the results directly ('results.repository')
+ *
+ * <ul>
+ *     <li>'native': a native store in 'results.repository.dir' with the indexes 'results.repository.indexes'
+ *     (default spoc,posc)</li>
+ *     <li>'memory': a memory store; persisted to 'results.repository.dir' at shutdown if set</li>
+ * </ul>
+ *
+ * The statements keep their context 'results.rdf.graph'. A task leases one of 'results.repository.connections'
+ * (default 'engine.threads') connections for its result and commits a transaction every 'results.repository.batch'
+ * statements, so the results of a task are visible as soon as it is done. A failed task keeps the batches committed
+ * before the failure; as identical statements are stored once, a rerun of the task completes them.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker, M.L.I.S. (UB Dortmund)
+ * @version 2015-05-21
+ *
+ */
+public class RepositorySink {
+
+    /**
+     * loads the statements of one task; the handler methods may be called by several threads
+     */
+    public class Loader extends RDFHandlerBase {
+
+        private RepositoryConnection connection;
+        private long statements = 0L;
+        private long pending = 0L;
+
+        private Loader(RepositoryConnection connection) {
+
+            this.connection = connection;
+        }
+
+        @Override
+        public synchronized void startRDF() throws RDFHandlerException {
+
+            try {
+                connection.begin();
+            }
+            catch (RepositoryException e) {
+                throw new RDFHandlerException(e);
+            }
+        }
+
+        @Override
+        public synchronized void handleStatement(Statement statement) throws RDFHandlerException {
+
+            try {
+
+                connection.add(statement);
+                statements++;
+
+                if (++pending >= batchSize) {
+
+                    connection.commit();
+                    connection.begin();
+                    pending = 0L;
+                }
+            }
+            catch (RepositoryException e) {
+                throw new RDFHandlerException(e);
+            }
+        }
+
+        @Override
+        public synchronized void endRDF() throws RDFHandlerException {
+
+            try {
+                connection.commit();
+            }
+            catch (RepositoryException e) {
+                throw new RDFHandlerException(e);
+            }
+        }
+
+        /**
+         * @return number of statements added
+         */
+        public synchronized long getStatements() {
+
+            return statements;
+        }
+
+        /**
+         * roll back the open batch, if any, and return the connection to the pool
+         */
+        public synchronized void close() {
+
+            try {
+
+                if (connection.isActive()) {
+                    connection.rollback();
+                }
+            }
+            catch (RepositoryException e) {
+
+                logger.error("[" + config.getProperty("service.name") + "] " + "Rollback failed: " + e.getMessage());
+            }
+            finally {
+
+                connections.add(connection);
+            }
+        }
+    }
+
+    private Properties config = null;
+    private Logger logger = null;
+
+    private long batchSize;
+
+    private SailRepository repository;
+    private ArrayList<RepositoryConnection> opened = new ArrayList<RepositoryConnection>();
+    private BlockingQueue<RepositoryConnection> connections = new LinkedBlockingQueue<RepositoryConnection>();
+
+    public RepositorySink(Properties config, Logger logger) {
+
+        this.config = config;
+        this.logger = logger;
+
+        this.batchSize = Long.parseLong(config.getProperty("results.repository.batch", "10000"));
+    }
+
+    /**
+     * initialize the repository and open the connections
+     *
+     * @throws RepositoryException
+     */
+    public void open() throws RepositoryException {
+
+        String type = config.getProperty("results.repository");
+        String dir = config.getProperty("results.repository.dir");
+
+        Sail sail;
+
+        switch (type) {
+
+            case "native": {
+
+                if (dir == null) {
+                    throw new RepositoryException("'results.repository.dir' is required for a native store.");
+                }
+
+                sail = new NativeStore(new File(dir), config.getProperty("results.repository.indexes", "spoc,posc"));
+                break;
+            }
+            case "memory": {
+
+                if (dir != null) {
+
+                    MemoryStore memoryStore = new MemoryStore(new File(dir));
+                    memoryStore.setPersist(true);
+                    sail = memoryStore;
+                }
+                else {
+
+                    sail = new MemoryStore();
+                }
+                break;
+            }
+            default: {
+
+                throw new RepositoryException("Unknown results.repository '" + type + "'. Use 'native' or 'memory'.");
+            }
+        }
+
+        repository = new SailRepository(sail);
+        repository.initialize();
+
+        int size = Integer.parseInt(config.getProperty("results.repository.connections", config.getProperty("engine.threads", "1")));
+
+        for (int i = 0; i < size; i++) {
+
+            RepositoryConnection connection = repository.getConnection();
+
+            opened.add(connection);
+            connections.add(connection);
+        }
+
+        logger.info("[" + config.getProperty("service.name") + "] " + type + " repository" + (dir != null ? " '" + dir + "'" : "") + " opened with " + size + " connection(s).");
+    }
+
+    /**
+     * lease a connection for the result of one task; blocks until one is available
+     *
+     * @return the loader; call {@link Loader#close()} when the result is done
+     */
+    public Loader lease() throws InterruptedException {
+
+        return new Loader(connections.take());
+    }
+
+    /**
+     * @return the repository, e.g. to query the results of the tasks done so far
+     */
+    public Repository getRepository() {
+
+        return repository;
+    }
+
+    /**
+     * close the connections and shut down the repository
+     */
+    public void close() {
+
+        for (RepositoryConnection connection : opened) {
+
+            try {
+                connection.close();
+            }
+            catch (RepositoryException e) {
+                logger.error("[" + config.getProperty("service.name") + "] " + "Closing a repository connection failed: " + e.getMessage());
+            }
+        }
+
+        opened.clear();
+
+        try {
+
+            if (repository != null) {
+                repository.shutDown();
+            }
+        }
+        catch (RepositoryException e) {
+
+            logger.error("[" + config.getProperty("service.name") + "] " + "Shutting down the repository failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.dswarm;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * A resource split into chunks which are processed as tasks of their own
+ *
+ * When all chunks have been processed, the resource as a whole is recorded as done in the manifest, with the outputs
+ * of all chunks. So an unchanged resource is skipped in later runs without splitting it again; it is split again
+ * if a chunk failed or the output of a chunk is missing. With 'engine.leases', the resource is leased as a whole before
+ * it is split, so only one node splits it; the lease is completed when all chunks have been processed.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker, M.L.I.S. (UB Dortmund)
+ * @version 2015-06-01
+ *
+ */
+public class SplitResource {
+
+    private final Manifest manifest;
+    private final String key;
+
+    private final ArrayList<String> outputs = new ArrayList<String>();
+
+    private FileLeases.Lease lease;
+
+    private int pending = 0;
+    private boolean sealed = false;
+    private boolean failed = false;
+
+    /**
+     * @param manifest the manifest or null
+     * @param key key of the whole resource in the manifest
+     */
+    public SplitResource(Manifest manifest, String key) {
+
+        this.manifest = manifest;
+        this.key = key;
+    }
+
+    /**
+     * @param lease lease on the whole resource or null
+     */
+    public void setLease(FileLeases.Lease lease) {
+
+        this.lease = lease;
+    }
+
+    /**
+     * a chunk processed in an earlier run
+     *
+     * @param output output of the chunk or an empty string
+     */
+    public synchronized void addDone(String output) {
+
+        if (!output.isEmpty()) {
+            outputs.add(output);
+        }
+    }
+
+    /**
+     * a chunk to be processed; must be followed by {@link #finished(String, String)} when its task has ended
+     */
+    public synchronized void add() {
+
+        pending++;
+    }
+
+    /**
+     * all chunks have been added
+     *
+     * @throws IOException if the lease cannot be completed
+     */
+    public synchronized void seal() throws IOException {
+
+        sealed = true;
+        complete();
+    }
+
+    /**
+     * @param stage {@link Manifest#DONE} or {@link Manifest#FAILED}
+     * @param output output of the chunk or an empty string
+     * @throws IOException if the lease cannot be completed
+     */
+    public synchronized void finished(String stage, String output) throws IOException {
+
+        pending--;
+
+        if (Manifest.DONE.equals(stage)) {
+            addDone(output);
+        }
+        else {
+            failed = true;
+        }
+
+        complete();
+    }
+
+    private void complete() throws IOException {
+
+        if (!sealed || pending > 0) {
+            return;
+        }
+
+        // once
+        sealed = false;
+
+        if (manifest != null && !failed) {
+
+            StringBuilder joined = new StringBuilder();
+
+            for (String output : outputs) {
+                joined.append(joined.length() > 0 ? File.pathSeparator : "").append(output);
+            }
+
+            manifest.record(key, Manifest.DONE, joined.toString());
+        }
+
+        if (lease != null) {
+
+            lease.complete(failed ? Manifest.FAILED : Manifest.DONE);
+            lease = null;
+        }
+    }
+}
@@ -24,40 +24,51 @@ SOFTWARE.
 
 package de.tu_dortmund.ub.data.dswarm;
 
+import de.tu_dortmund.ub.data.util.Compression;
+import de.tu_dortmund.ub.data.util.ExecutorFactory;
+import de.tu_dortmund.ub.data.util.Metrics;
+import de.tu_dortmund.ub.data.util.PayloadLogger;
+import de.tu_dortmund.ub.data.util.RdfFormats;
+import de.tu_dortmund.ub.data.util.TransformedFileBody;
 import de.tu_dortmund.ub.data.util.XmlTransformer;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.http.Consts;
 import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.*;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.ContentBody;
 import org.apache.http.entity.mime.content.FileBody;
 import org.apache.http.entity.mime.content.StringBody;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
-import org.apache.log4j.PropertyConfigurator;
 import org.jdom2.Document;
 import org.jdom2.input.SAXBuilder;
 import org.jdom2.output.Format;
 import org.jdom2.output.XMLOutputter;
-import org.openrdf.model.*;
-import org.openrdf.model.impl.LinkedHashModel;
 import org.openrdf.model.impl.ValueFactoryImpl;
-import org.openrdf.model.vocabulary.RDF;
 import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
 import org.openrdf.rio.RDFHandlerException;
 import org.openrdf.rio.RDFWriter;
 import org.openrdf.rio.Rio;
+import org.openrdf.rio.helpers.RDFHandlerWrapper;
 
 import javax.json.*;
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Task for Task Processing Unit for d:swarm
@@ -71,622 +82,921 @@ public class Task implements Callable<String> {
 
     private Properties config = null;
     private Logger logger = null;
+    private CloseableHttpClient httpclient = null;
+    private TaskTemplate template = null;
+    private DataModelPool dataModels = null;
 
     private String resource;
-    private int cnt;
 
-    public Task(Properties config, Logger logger, String resource, int cnt) {
+    // name of the resource in the watch folder; results are named after it, so they keep their names across runs
+    private String name;
+
+    // file to read the resource from and number of the chunk (0: the resource is not split)
+    private File source;
+    private int part;
+
+    // journal of the processed resources (optional)
+    private Manifest manifest;
+    private String key;
+
+    // the split resource this chunk belongs to
+    private SplitResource split;
+
+    // repository which receives the statements of the result (optional)
+    private RepositorySink sink;
+
+    // run-wide deduplication of the statements (optional)
+    private Deduplicator deduplicator;
+    private Deduplicator.Scope dedup;
+
+    // coordination with other nodes (optional): name and file of the resource, lease while the task runs
+    private FileLeases leases;
+    private String leaseName;
+    private File leaseResource;
+    private FileLeases.Lease lease;
+
+    // file to upload (the resource or its preprocessed copy) and spooled result of the d:swarm task
+    private String file;
+    private File spool;
+
+    public Task(Properties config, Logger logger, CloseableHttpClient httpclient, TaskTemplate template, DataModelPool dataModels, String resource) {
 
         this.config = config;
         this.logger = logger;
+        this.httpclient = httpclient;
+        this.template = template;
+        this.dataModels = dataModels;
         this.resource = resource;
-        this.cnt = cnt;
+        this.name = resource;
+        this.source = new File(config.getProperty("resource.watchfolder"), resource);
+        this.part = 0;
+    }
+
+    /**
+     * task for a chunk of a split resource; the chunk is deleted after its upload
+     *
+     * @param chunk file containing the chunk
+     * @param name name of the split resource
+     * @param part number of the chunk (results are named '&lt;dataModelID&gt;.&lt;name&gt;.part&lt;part&gt;')
+     */
+    public Task(Properties config, Logger logger, CloseableHttpClient httpclient, TaskTemplate template, DataModelPool dataModels, File chunk, String name, int part) {
+
+        this(config, logger, httpclient, template, dataModels, chunk.getName());
+
+        this.name = name;
+
+        this.source = chunk;
+        this.part = part;
+    }
+
+    /**
+     * record the stages of this task in the manifest
+     *
+     * @param manifest
+     * @param key key of the resource, see {@link Manifest#key(File, String)}
+     */
+    public void setManifest(Manifest manifest, String key) {
+
+        this.manifest = manifest;
+        this.key = key;
+    }
+
+    /**
+     * report the end of this chunk to the resource it belongs to
+     *
+     * @param split
+     */
+    public void setSplit(SplitResource split) {
+
+        this.split = split;
+    }
+
+    /**
+     * load the statements of the result into the repository (in addition to 'results.persistInFolder')
+     *
+     * @param sink
+     */
+    public void setSink(RepositorySink sink) {
+
+        this.sink = sink;
+    }
+
+    /**
+     * drop the statements already written by another task of the run
+     *
+     * @param deduplicator
+     */
+    public void setDeduplicator(Deduplicator deduplicator) {
+
+        this.deduplicator = deduplicator;
+    }
+
+    /**
+     * claim the resource before processing it, so no other node sharing the watch folder processes it as well
+     *
+     * @param leases
+     * @param name name of the resource
+     * @param resource the resource (not the chunk)
+     */
+    public void setLeases(FileLeases leases, String name, File resource) {
+
+        this.leases = leases;
+        this.leaseName = name;
+        this.leaseResource = resource;
+    }
+
+    /**
+     * @return the cost of the task for scheduling: the size of the file to process
+     */
+    public long getCost() {
+
+        return source.length();
     }
 
     @Override
     public String call() {
 
-        // init logger
-        PropertyConfigurator.configure(config.getProperty("service.log4j-conf"));
-
         logger.info("[" + config.getProperty("service.name") + "] " + "Starting 'Task' ...");
 
-        // init IDs of the prototype project
-        String dataModelID = config.getProperty("prototype.dataModelID");
-        String projectID = config.getProperty("prototype.projectID");
-        String outputDataModelID = config.getProperty("prototype.outputDataModelID");
+        String message = preprocess();
+
+        if (message == null) {
+
+            // the result is converted while it is read from the response
+            message = execute(false);
+        }
+
+        return finish(message);
+    }
+
+    /**
+     * stage 1: local preprocessing of the resource (if 'resource.preprocessing' is set and 'preprocessing.streaming' is not)
+     *
+     * @return message if the task failed, otherwise null
+     */
+    String preprocess() {
+
+        long start = System.nanoTime();
+
+        try {
+
+            if (leases != null) {
+
+                lease = leases.claim(leaseName, leaseResource);
+
+                if (lease == null) {
+
+                    if (part > 0) {
+                        source.delete();
+                    }
+
+                    return "'" + resource + "' skipped: processed or claimed by another node.";
+                }
+            }
+
+            journal(Manifest.STARTED, "");
+
+            file = source.getPath();
+
+            // ggf. Preprocessing: insert CDATA in XML and write new XML file to tmp folder
+            if (Boolean.parseBoolean(config.getProperty("resource.preprocessing")) && !Boolean.parseBoolean(config.getProperty("preprocessing.streaming"))) {
+
+                Document document = new SAXBuilder().build(new File(file));
+
+                file = config.getProperty("preprocessing.folder") + File.separatorChar + UUID.randomUUID() + ".xml";
+
+                XMLOutputter out = new XMLOutputter(Format.getPrettyFormat());
+                BufferedWriter bufferedWriter = null;
+                try {
+
+                    bufferedWriter = new BufferedWriter(new FileWriter(file));
+
+                    out.output(new SAXBuilder().build(new StringReader(XmlTransformer.xmlOutputter(document, config.getProperty("preprocessing.xslt"), null))), bufferedWriter);
+                }
+                finally {
+                    if (bufferedWriter != null) {
+                        bufferedWriter.close();
+                    }
+                }
+            }
+
+            return null;
+        }
+        catch (Exception e) {
+
+            return failed(e);
+        }
+        finally {
+
+            Metrics.timer("tpu_stage_seconds", "stage=\"preprocess\"").stop(start);
+        }
+    }
+
+    /**
+     * stage 2: upload the resource, update the input data model and execute the d:swarm task
+     *
+     * The input data model is leased from the pool for the whole stage, so no other task uploads into its resource.
+     *
+     * @param spool write the result to a spool file for {@link #convert()} instead of converting it directly
+     * @return message; null if the result has been spooled
+     */
+    String execute(boolean spool) {
 
         // init process values
         String inputResourceID = null;
         String message = null;
 
+        DataModelPool.DataModel dataModel = null;
+
         try {
 
+            dataModel = dataModels.lease();
+
+            String dataModelID = dataModel.getID();
+            logger.info("[" + config.getProperty("service.name") + "] dataModelID = " + dataModelID);
+
             // get the resource id of the current data model >> updateResourceID replaces resourceID
-            String updateResourceID = null;
-            try {
-                updateResourceID = getProjectResourceID(dataModelID);
-            }
-            catch (Exception e1) {
-                e1.printStackTrace();
-            }
+            String updateResourceID = dataModel.getResourceID();
             logger.info("[" + config.getProperty("service.name") + "] updateResourceID = " + updateResourceID);
 
             // upload resource and update a InputDataModel
-            String inputResourceJson = uploadFileAndUpdateResource(updateResourceID, resource, "resource for project '" + resource, config.getProperty("project.name") + "' - case " + cnt);
+            long start = System.nanoTime();
+            String inputResourceJson = uploadFileAndUpdateResource(updateResourceID, file, "resource for project '" + resource, config.getProperty("project.name") + "' - case " + resource);
             JsonReader jsonReader = Json.createReader(IOUtils.toInputStream(inputResourceJson, "UTF-8"));
             inputResourceID = jsonReader.readObject().getString("uuid");
             logger.info("[" + config.getProperty("service.name") + "] inputResourceID = " + inputResourceID);
 
+            Metrics.timer("tpu_stage_seconds", "stage=\"upload\"").stop(start);
+
+            journal(Manifest.UPLOADED, "");
+
             if (updateResourceID != null) {
 
                 // update the datamodel (will use it's (update) resource)
+                start = System.nanoTime();
                 updateDataModel(dataModelID);
+                Metrics.timer("tpu_stage_seconds", "stage=\"update\"").stop(start);
 
                 // configuration and processing of the task
-                String jsonResponse = executeTask(dataModelID, projectID, outputDataModelID);
+                // includes the conversion if the result is not spooled
+                start = System.nanoTime();
+                message = executeTask(dataModel, spool);
+                Metrics.timer("tpu_stage_seconds", "stage=\"task\"").stop(start);
+            }
+        }
+        catch (Exception e) {
 
-                if (jsonResponse != null) {
+            message = failed(e);
+        }
+        finally {
 
-                    if (Boolean.parseBoolean(config.getProperty("results.persistInFolder"))) {
+            if (dataModel != null) {
+                dataModels.release(dataModel);
+            }
 
-                        if (Boolean.parseBoolean(config.getProperty("results.writeDMPJson"))) {
-                            // save DMP results in files
-                            FileUtils.writeStringToFile(new File(config.getProperty("results.folder") + File.separatorChar + dataModelID + "." + cnt + ".json"), jsonResponse);
-                        }
+            if (part > 0) {
+                source.delete();
+            }
+        }
 
-                        // build rdf graph
-                        ValueFactory factory = ValueFactoryImpl.getInstance();
-
-                        Graph graph = new LinkedHashModel();
-
-                        URI graphUri = factory.createURI(config.getProperty("results.rdf.graph"));
-
-                        URI subject = null;
-                        URI predicate = null;
-                        URI object = null;
-                        Literal literal = null;
-                        Statement statement = null;
-
-                        JsonReader dmpJsonResult = Json.createReader(IOUtils.toInputStream(jsonResponse, "UTF-8"));
-                        JsonArray records = dmpJsonResult.readArray();
-
-                        for (JsonObject record : records.getValuesAs(JsonObject.class)) {
-
-                            subject = factory.createURI(record.getJsonString("__record_id").toString().replaceAll("\"", ""));
-
-                            for (JsonObject triple : record.getJsonArray("__record_data").getValuesAs(JsonObject.class)) {
-
-                                for (String key : triple.keySet()) {
-
-                                    if (key.endsWith("rdf-syntax-ns#type")) {
-                                        predicate = RDF.TYPE;
-                                        object = factory.createURI(triple.getJsonString(key).toString().replaceAll("\"", ""));
-                                        statement = factory.createStatement(subject, predicate, object, graphUri);
-                                        graph.add(statement);
-                                    }
-                                    else {
-
-                                        predicate = factory.createURI(key);
-
-                                        switch (triple.get(key).getValueType().toString()) {
-
-                                            case "STRING" : {
-
-                                                try {
-                                                    object = factory.createURI(triple.getJsonString(key).toString().replaceAll("\"", ""));
-                                                    statement = factory.createStatement(subject, predicate, object, graphUri);
-                                                    graph.add(statement);
-                                                }
-                                                catch (Exception e) {
-                                                    literal = factory.createLiteral(triple.getJsonString(key).toString().replaceAll("\"",""));
-                                                    statement = factory.createStatement(subject, predicate, literal, graphUri);
-                                                    graph.add(statement);
-                                                }
-                                                break;
-                                            }
-                                            case "ARRAY" : {
-
-                                                for (JsonString value : triple.getJsonArray(key).getValuesAs(JsonString.class)) {
-
-                                                    try {
-                                                        object = factory.createURI(value.toString().replaceAll("\"",""));
-                                                        statement = factory.createStatement(subject, predicate, object, graphUri);
-                                                        graph.add(statement);
-                                                    }
-                                                    catch (Exception e) {
-                                                        literal = factory.createLiteral(value.toString().replaceAll("\"",""));
-                                                        statement = factory.createStatement(subject, predicate, literal, graphUri);
-                                                        graph.add(statement);
-                                                    }
-                                                }
-                                                break;
-                                            }
-                                            default: {
-
-                                                logger.info("Unhandled ValueType: " + triple.get(key).getValueType());
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
+        return message;
+    }
+
+    /**
+     * stage 3: convert the result spooled by {@link #execute(boolean)}
+     *
+     * @return message
+     */
+    String convert() {
+
+        try {
 
-                        if (graph.size() > 0) {
-                            // save rdf data as 'results.rdf.format' in 'results.folder'
-                            RDFFormat format = null;
-                            switch (config.getProperty("results.rdf.format")) {
+            return processResult(config.getProperty("prototype.dataModelID"), new BufferedInputStream(new FileInputStream(spool)));
+        }
+        catch (Exception e) {
 
-                                case "xml": {
+            return failed(e);
+        }
+        finally {
 
-                                    format = RDFFormat.RDFXML;
-                                    break;
-                                }
-                                case "nquads": {
+            spool.delete();
+        }
+    }
 
-                                    format = RDFFormat.NQUADS;
-                                    break;
-                                }
-                                case "jsonld": {
+    String getResource() {
 
-                                    format = RDFFormat.JSONLD;
-                                    break;
-                                }
-                                case "ttl": {
+        return resource;
+    }
 
-                                    format = RDFFormat.TURTLE;
-                                    break;
-                                }
-                                default: {
+    /**
+     * end of the task: a lease not yet completed (the task ended without result) is completed as failed
+     *
+     * @param message
+     * @return message
+     */
+    String finish(String message) {
 
-                                    format = RDFFormat.RDFXML;
-                                }
-                            }
+        complete(Manifest.FAILED, "");
 
-                            try {
-                                FileOutputStream out = new FileOutputStream(config.getProperty("results.folder") + File.separatorChar + dataModelID + "." + cnt + ".rdf." + config.getProperty("results.rdf.format"));
-                                RDFWriter writer = Rio.createWriter(format, out);
+        return message;
+    }
 
-                                writer.startRDF();
-                                for (Statement st : graph) {
-                                    writer.handleStatement(st);
-                                }
-                                writer.endRDF();
+    private void journal(String stage, String output) {
 
-                                out.close();
+        if (manifest != null) {
+            manifest.record(key, stage, output);
+        }
 
-                            } catch (RDFHandlerException | IOException e) {
-                                e.printStackTrace();
-                            }
+        if (Manifest.DONE.equals(stage) || Manifest.FAILED.equals(stage)) {
+            complete(stage, output);
+        }
+    }
 
-                            message = "'" + resource + "' transformed. results in '" + config.getProperty("results.folder") + File.separatorChar + dataModelID + "." + cnt + ".rdf." + config.getProperty("results.rdf.format") + "'";
-                        }
-                        else {
+    /**
+     * mark the resource as processed for the other nodes and the chunk as processed for its resource (once)
+     */
+    private void complete(String result, String output) {
 
-                            message = "'" + resource + "' transformed but result is empty.";
-                        }
-                    }
-                }
-                else {
+        if (split != null) {
 
-                    message = "'" + resource + "' not transformed: error in task execution.";
-                }
+            try {
+
+                split.finished(result, output);
+            }
+            catch (IOException e) {
+
+                logger.error("[" + config.getProperty("service.name") + "] Completing the lease on the split resource of '" + resource + "' failed with a " + e.getClass().getSimpleName());
+                e.printStackTrace();
             }
+
+            split = null;
         }
-        catch (Exception e) {
 
-            logger.error("[" + config.getProperty("service.name") + "] Processing resource '" + resource + "' failed with a " + e.getClass().getSimpleName());
-            e.printStackTrace();
+        if (lease != null) {
+
+            try {
+
+                lease.complete(result);
+            }
+            catch (IOException e) {
+
+                logger.error("[" + config.getProperty("service.name") + "] Completing the lease on '" + resource + "' failed with a " + e.getClass().getSimpleName());
+                e.printStackTrace();
+            }
+
+            lease = null;
         }
+    }
 
-        return message;
+    private String getPartSuffix() {
+
+        return part > 0 ? String.format(".part%04d", part) : "";
+    }
+
+    /**
+     * @return path of the results without extension: '&lt;results.folder&gt;/&lt;dataModelID&gt;.&lt;name&gt;[.part&lt;part&gt;]'
+     */
+    String getResultName(String dataModelID) {
+
+        return config.getProperty("results.folder") + File.separatorChar + dataModelID + "." + name + getPartSuffix();
+    }
+
+    private String failed(Exception e) {
+
+        logger.error("[" + config.getProperty("service.name") + "] Processing resource '" + resource + "' failed with a " + e.getClass().getSimpleName());
+        e.printStackTrace();
+
+        journal(Manifest.FAILED, "");
+        Metrics.counter("tpu_tasks_total", "result=\"failed\"").increment();
+
+        return "'" + resource + "' not transformed: processing failed with a " + e.getClass().getSimpleName() + ".";
     }
 
     /**
      * configuration and processing of the task
      *
-     * @param inputDataModelID
-     * @param projectID
-     * @param outputDataModelID
-     * @return
+     * @param dataModel leased input data model
+     * @param spool
+     * @return message
      */
-    private String executeTask(String inputDataModelID, String projectID, String outputDataModelID) throws Exception {
+    private String executeTask(DataModelPool.DataModel dataModel, boolean spool) throws Exception {
 
-        String jsonResponse = null;
+        String message = null;
 
-        CloseableHttpClient httpclient = HttpClients.createDefault();
+        String inputDataModelID = dataModel.getID();
 
-        try {
+        // Mappings und OutputDataModel aus dem Task-Template, InputDataModel aus dem Pool
+        // one version of the prototype project for the whole task
+        TaskTemplate.Snapshot snapshot = template.snapshot();
+
+        // the result is journaled with the version of the template it is made with
+        if (manifest != null) {
+            key = manifest.key(key, snapshot);
+        }
 
-            // Hole Mappings aus dem Projekt mit 'projectID'
-            HttpGet httpGet = new HttpGet(config.getProperty("engine.dswarm.api") + "projects/" + projectID);
+        String mappings = snapshot.getMappings();
+        String inputDataModel = dataModels.getJson(dataModel, snapshot);
+        String outputDataModel = snapshot.getOutputDataModel();
 
-            CloseableHttpResponse httpResponse = httpclient.execute(httpGet);
+        // erzeuge Task-JSON
+        String task = "{";
+        task += "\"name\":\"" + "Task Batch-Prozess 'CrossRef'" + "\",";
+        task += "\"description\":\"" + "Task Batch-Prozess 'CrossRef' zum InputDataModel '" + inputDataModelID + "'\",";
+        task += "\"job\": { " +
+                "\"mappings\": " + mappings + "," +
+                "\"uuid\": \"" + UUID.randomUUID() + "\"" +
+                " },";
+        task += "\"input_data_model\":" + inputDataModel + ",";
+        task += "\"output_data_model\":" + outputDataModel;
+        task += "}";
 
-            logger.info("[" + config.getProperty("service.name") + "] " + "request : " + httpGet.getRequestLine());
+        PayloadLogger.log("task", task);
 
-            String mappings = "";
+        // POST /dmp/tasks/
+        HttpPost httpPost = new HttpPost(config.getProperty("engine.dswarm.api") + "tasks?persist=" + config.getProperty("results.persistInDMP"));
+        StringEntity stringEntity = new StringEntity(task, ContentType.create("application/json", Consts.UTF_8));
+        httpPost.setEntity(stringEntity);
 
-            try {
+        logger.info("[" + config.getProperty("service.name") + "] " + "request : " + httpPost.getRequestLine());
 
-                int statusCode = httpResponse.getStatusLine().getStatusCode();
-                HttpEntity httpEntity = httpResponse.getEntity();
+        CloseableHttpResponse httpResponse = httpclient.execute(httpPost);
 
-                switch (statusCode) {
+        try {
 
-                    case 200: {
+            int statusCode = httpResponse.getStatusLine().getStatusCode();
+            HttpEntity httpEntity = httpResponse.getEntity();
 
-                        StringWriter writer = new StringWriter();
-                        IOUtils.copy(httpEntity.getContent(), writer, "UTF-8");
-                        String responseJson = writer.toString();
+            switch (statusCode) {
 
-                        logger.info("[" + config.getProperty("service.name") + "] responseJson : " + responseJson);
+                case 200: {
 
-                        JsonReader jsonReader = Json.createReader(IOUtils.toInputStream(responseJson, "UTF-8"));
-                        JsonObject jsonObject = jsonReader.readObject();
+                    logger.info("[" + config.getProperty("service.name") + "] " + statusCode + " : " + httpResponse.getStatusLine().getReasonPhrase());
 
-                        mappings = jsonObject.getJsonArray("mappings").toString();
+                    if (spool) {
 
-                        logger.info("[" + config.getProperty("service.name") + "] mappings : " + mappings);
+                        // the result is converted later by the convert stage of the pipeline
+                        this.spool = File.createTempFile("dmp-", ".json", new File(config.getProperty("engine.stage.spool", System.getProperty("java.io.tmpdir"))));
+                        FileUtils.copyInputStreamToFile(httpEntity.getContent(), this.spool);
 
-                        break;
+                        journal(Manifest.EXECUTED, "");
                     }
-                    default: {
+                    else {
 
-                        logger.error("[" + config.getProperty("service.name") + "] " + statusCode + " : " + httpResponse.getStatusLine().getReasonPhrase());
+                        message = processResult(config.getProperty("prototype.dataModelID"), httpEntity.getContent());
                     }
+
+                    break;
                 }
+                default: {
+
+                    logger.error("[" + config.getProperty("service.name") + "] " + statusCode + " : " + httpResponse.getStatusLine().getReasonPhrase());
 
-                EntityUtils.consume(httpEntity);
-            } finally {
-                httpResponse.close();
+                    message = "'" + resource + "' not transformed: error in task execution.";
+
+                    journal(Manifest.FAILED, "");
+                    Metrics.counter("tpu_tasks_total", "result=\"failed\"").increment();
+                }
             }
 
-            // Hole InputDataModel
-            String inputDataModel = "";
+            EntityUtils.consume(httpEntity);
+        } finally {
+            httpResponse.close();
+        }
+
+        return message;
+    }
 
-            httpGet = new HttpGet(config.getProperty("engine.dswarm.api") + "datamodels/" + inputDataModelID);
+    /**
+     * write the DMP JSON result of the task as rdf (and optionally as json) to 'results.folder'
+     *
+     * @param dataModelID
+     * @param inputStream
+     * @return message
+     * @throws Exception
+     */
+    private String processResult(String dataModelID, InputStream inputStream) throws Exception {
 
-            httpResponse = httpclient.execute(httpGet);
+        boolean toFolder = Boolean.parseBoolean(config.getProperty("results.persistInFolder"));
 
-            logger.info("[" + config.getProperty("service.name") + "] " + "request : " + httpGet.getRequestLine());
+        if (!toFolder && sink == null) {
 
-            try {
+            journal(Manifest.DONE, "");
+            Metrics.counter("tpu_tasks_total", "result=\"done\"").increment();
 
-                int statusCode = httpResponse.getStatusLine().getStatusCode();
-                HttpEntity httpEntity = httpResponse.getEntity();
+            return "'" + resource + "' transformed.";
+        }
 
-                switch (statusCode) {
+        String message = null;
 
-                    case 200: {
+        if (toFolder && Boolean.parseBoolean(config.getProperty("results.writeDMPJson"))) {
+            // save DMP results in files while reading them
+            inputStream = new TeeInputStream(inputStream, Compression.create(new File(getResultName(dataModelID) + ".json" + Compression.getExtension(config)), config), true);
+        }
 
-                        StringWriter writer = new StringWriter();
-                        IOUtils.copy(httpEntity.getContent(), writer, "UTF-8");
-                        inputDataModel = writer.toString();
+        String resultName = getResultName(dataModelID);
+        File resultFile = new File(resultName + ".rdf." + config.getProperty("results.rdf.format") + Compression.getExtension(config));
 
-                        logger.info("[" + config.getProperty("service.name") + "] inputDataModel : " + inputDataModel);
+        // line-based formats are converted in parallel into shards (engine.convert.threads)
+        boolean sharded = toFolder && Integer.parseInt(config.getProperty("engine.convert.threads", "0")) > 0 && (getRdfFormat() == RDFFormat.NQUADS || getRdfFormat() == RDFFormat.NTRIPLES);
+        ArrayList<File> shardFiles = new ArrayList<File>();
 
-                        JsonReader jsonReader = Json.createReader(IOUtils.toInputStream(inputDataModel, "UTF-8"));
-                        JsonObject jsonObject = jsonReader.readObject();
+        long statements = 0L;
+        boolean complete = false;
+        Exception failure = null;
 
-                        String inputResourceID = jsonObject.getJsonObject("data_resource").getString("uuid");
+        long start = System.nanoTime();
 
-                        logger.info("[" + config.getProperty("service.name") + "] mappings : " + mappings);
+        // statements are also loaded into the repository ('results.repository')
+        RepositorySink.Loader loader = null;
 
-                        break;
-                    }
-                    default: {
+        // statements dropped by the run-wide deduplication
+        AtomicLong duplicates = new AtomicLong();
+        dedup = deduplicator != null ? deduplicator.scope() : null;
 
-                        logger.error("[" + config.getProperty("service.name") + "] " + statusCode + " : " + httpResponse.getStatusLine().getReasonPhrase());
-                    }
-                }
+        try {
+
+            if (sink != null) {
 
-                EntityUtils.consume(httpEntity);
-            } finally {
-                httpResponse.close();
+                loader = sink.lease();
+                loader.startRDF();
             }
 
-            // Hole OutputDataModel
-            String outputDataModel = "";
+            if (sharded) {
 
-            httpGet = new HttpGet(config.getProperty("engine.dswarm.api") + "datamodels/" + outputDataModelID);
+                statements = convertSharded(new CloseShieldInputStream(inputStream), resultName, resultFile, shardFiles, loader, duplicates);
+            }
+            else {
 
-            httpResponse = httpclient.execute(httpGet);
+                // save rdf data as 'results.rdf.format' in 'results.folder'
+                OutputStream out = toFolder ? Compression.create(resultFile, config) : null;
 
-            logger.info("[" + config.getProperty("service.name") + "] " + "request : " + httpGet.getRequestLine());
+                try {
 
-            try {
+                    RDFWriter writer = null;
 
-                int statusCode = httpResponse.getStatusLine().getStatusCode();
-                HttpEntity httpEntity = httpResponse.getEntity();
+                    if (out != null) {
 
-                switch (statusCode) {
+                        writer = Rio.createWriter(getRdfFormat(), out);
+                        writer.startRDF();
+                    }
 
-                    case 200: {
+                    RDFHandler handler = filter(writer == null ? loader : loader == null ? writer : new RDFHandlerWrapper(writer, loader), duplicates);
 
-                        StringWriter writer = new StringWriter();
-                        IOUtils.copy(httpEntity.getContent(), writer, "UTF-8");
-                        outputDataModel = writer.toString();
+                    DmpJsonConverter converter = new DmpJsonConverter(ValueFactoryImpl.getInstance().createURI(config.getProperty("results.rdf.graph")), logger);
 
-                        logger.info("[" + config.getProperty("service.name") + "] outputDataModel : " + outputDataModel);
+                    // the parser closes its stream, but the rest of the response is read below
+                    statements = converter.convert(new CloseShieldInputStream(inputStream), handler) - duplicates.get();
 
-                        break;
+                    if (writer != null) {
+                        writer.endRDF();
                     }
-                    default: {
 
-                        logger.error("[" + config.getProperty("service.name") + "] " + statusCode + " : " + httpResponse.getStatusLine().getReasonPhrase());
+                    Metrics.counter("tpu_records_total").add(converter.getRecords());
+                    Metrics.counter("tpu_statements_total").add(statements);
+
+                } finally {
+
+                    if (out != null) {
+                        out.close();
                     }
                 }
+            }
 
-                EntityUtils.consume(httpEntity);
-            } finally {
-                httpResponse.close();
+            if (loader != null) {
+
+                loader.endRDF();
+                Metrics.counter("tpu_repository_statements_total").add(loader.getStatements());
             }
 
-            // erzeuge Task-JSON
-            String task = "{";
-            task += "\"name\":\"" + "Task Batch-Prozess 'CrossRef'" + "\",";
-            task += "\"description\":\"" + "Task Batch-Prozess 'CrossRef' zum InputDataModel '" + inputDataModelID + "'\",";
-            task += "\"job\": { " +
-                    "\"mappings\": " + mappings + "," +
-                    "\"uuid\": \"" + UUID.randomUUID() + "\"" +
-                    " },";
-            task += "\"input_data_model\":" + inputDataModel + ",";
-            task += "\"output_data_model\":" + outputDataModel;
-            task += "}";
+            Metrics.counter("tpu_duplicates_total").add(duplicates.get());
 
-            logger.info("[" + config.getProperty("service.name") + "] task : " + task);
+            // read the rest of the response, so that the json file is complete
+            IOUtils.copy(inputStream, NullOutputStream.NULL_OUTPUT_STREAM);
 
-            // POST /dmp/tasks/
-            HttpPost httpPost = new HttpPost(config.getProperty("engine.dswarm.api") + "tasks?persist=" + config.getProperty("results.persistInDMP"));
-            StringEntity stringEntity = new StringEntity(task, ContentType.create("application/json", Consts.UTF_8));
-            httpPost.setEntity(stringEntity);
+            complete = true;
 
-            logger.info("[" + config.getProperty("service.name") + "] " + "request : " + httpPost.getRequestLine());
+        } catch (RDFHandlerException | IOException e) {
 
-            httpResponse = httpclient.execute(httpPost);
+            logger.error("[" + config.getProperty("service.name") + "] Converting the result of '" + resource + "' failed with a " + e.getClass().getSimpleName(), e);
+            failure = e;
 
-            try {
+        } finally {
 
-                int statusCode = httpResponse.getStatusLine().getStatusCode();
-                HttpEntity httpEntity = httpResponse.getEntity();
+            if (loader != null) {
+                loader.close();
+            }
 
-                switch (statusCode) {
+            inputStream.close();
 
-                    case 200: {
+            Metrics.timer("tpu_stage_seconds", "stage=\"convert\"").stop(start);
+        }
 
-                        logger.info("[" + config.getProperty("service.name") + "] " + statusCode + " : " + httpResponse.getStatusLine().getReasonPhrase());
+        // 'engine.convert.shards=parts': the shards are the result
+        StringBuilder output = new StringBuilder(!toFolder ? "" : shardFiles.isEmpty() ? resultFile.getPath() : "");
 
-                        StringWriter writer = new StringWriter();
-                        IOUtils.copy(httpEntity.getContent(), writer, "UTF-8");
-                        jsonResponse = writer.toString();
+        for (File shardFile : shardFiles) {
+            output.append(output.length() > 0 ? File.pathSeparator : "").append(shardFile.getPath());
+        }
 
-                        logger.info("[" + config.getProperty("service.name") + "] jsonResponse : " + jsonResponse);
+        if (!complete) {
 
-                        break;
-                    }
-                    default: {
+            // no partial results
+            resultFile.delete();
 
-                        logger.error("[" + config.getProperty("service.name") + "] " + statusCode + " : " + httpResponse.getStatusLine().getReasonPhrase());
-                    }
-                }
+            for (File shardFile : shardFiles) {
+                shardFile.delete();
+            }
+
+            message = "'" + resource + "' not transformed: converting the result failed with a " + failure.getClass().getSimpleName() + ".";
+        }
+        else if (statements > 0) {
 
-                EntityUtils.consume(httpEntity);
-            } finally {
-                httpResponse.close();
+            if (!toFolder) {
+                message = "'" + resource + "' transformed. " + statements + " statements loaded into the repository.";
             }
+            else if (shardFiles.isEmpty()) {
+                message = "'" + resource + "' transformed. results in '" + resultFile.getPath() + "'";
+            }
+            else {
+                message = "'" + resource + "' transformed. results in " + shardFiles.size() + " shards '" + resultName + ".shardNN.rdf." + config.getProperty("results.rdf.format") + Compression.getExtension(config) + "'";
+            }
+        }
+        else {
 
-        } finally {
-            httpclient.close();
+            resultFile.delete();
+
+            for (File shardFile : shardFiles) {
+                shardFile.delete();
+            }
+
+            message = "'" + resource + "' transformed but result is empty.";
         }
 
-        return jsonResponse;
+        // the statements of a failed task are not dropped from the results of later tasks
+        if (complete && dedup != null) {
+            dedup.commit();
+        }
+
+        journal(complete ? Manifest.DONE : Manifest.FAILED, statements > 0 ? output.toString() : "");
+        Metrics.counter("tpu_tasks_total", complete ? "result=\"done\"" : "result=\"failed\"").increment();
+
+        return message;
     }
 
     /**
-     * update the datamodel with the given ID
+     * convert the DMP JSON result in parallel into one shard per thread ('engine.convert.threads'); the shards are
+     * concatenated to the result file or, with 'engine.convert.shards=parts', kept as numbered parts
      *
-     * @param inputDataModelID
-     * @return
-     * @throws Exception
+     * @param shardFiles receives the shards kept as parts
+     * @param loader receives the statements of all shards as well, or null
+     * @param duplicates counts the statements dropped by the deduplication
+     * @return number of statements
      */
-    private String updateDataModel(String inputDataModelID) throws Exception {
+    private long convertSharded(InputStream inputStream, String resultName, File resultFile, List<File> shardFiles, RepositorySink.Loader loader, AtomicLong duplicates) throws RDFHandlerException, IOException {
 
-        CloseableHttpClient httpclient = HttpClients.createDefault();
-        CloseableHttpResponse httpResponse;
+        int threads = Integer.parseInt(config.getProperty("engine.convert.threads"));
+        int batchSize = Integer.parseInt(config.getProperty("engine.convert.batch", "1000"));
+
+        ArrayList<File> files = new ArrayList<File>();
+        ArrayList<OutputStream> outs = new ArrayList<OutputStream>();
+        ArrayList<RDFWriter> writers = new ArrayList<RDFWriter>();
+        ArrayList<RDFHandler> shards = new ArrayList<RDFHandler>();
+
+        long statements = 0L;
+        boolean complete = false;
 
         try {
-            // Update the existing input Data Model (we are simply using the example data model here ... TODO !)
-            HttpPost httpPost = new HttpPost(config.getProperty("engine.dswarm.api") + "datamodels/" + inputDataModelID + "/data");
 
-            logger.info("[" + config.getProperty("service.name") + "] inputDataModelID : " + inputDataModelID);
-            logger.info("[" + config.getProperty("service.name") + "] " + "request : " + httpPost.getRequestLine());
+            for (int i = 1; i <= threads; i++) {
+
+                File file = new File(resultName + String.format(".shard%02d", i) + ".rdf." + config.getProperty("results.rdf.format") + Compression.getExtension(config));
+                files.add(file);
 
-            httpResponse = httpclient.execute(httpPost);
+                OutputStream out = Compression.create(file, config);
+                outs.add(out);
+
+                RDFWriter writer = Rio.createWriter(getRdfFormat(), out);
+                writer.startRDF();
+                writers.add(writer);
+
+                shards.add(filter(loader != null ? new RDFHandlerWrapper(writer, loader) : writer, duplicates));
+            }
+
+            ParallelDmpJsonConverter converter = new ParallelDmpJsonConverter(ValueFactoryImpl.getInstance().createURI(config.getProperty("results.rdf.graph")), logger, ExecutorFactory.getConversionPool(config), batchSize);
+
+            statements = converter.convert(inputStream, shards) - duplicates.get();
+
+            for (RDFWriter writer : writers) {
+                writer.endRDF();
+            }
+
+            Metrics.counter("tpu_records_total").add(converter.getRecords());
+            Metrics.counter("tpu_statements_total").add(statements);
+
+            complete = true;
+        }
+        finally {
+
+            for (OutputStream out : outs) {
+                out.close();
+            }
+
+            if (!complete) {
+
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        }
+
+        if ("parts".equals(config.getProperty("engine.convert.shards"))) {
+
+            for (File file : files) {
+
+                if (file.length() > 0) {
+                    shardFiles.add(file);
+                }
+                else {
+                    file.delete();
+                }
+            }
+        }
+        else {
+
+            // line-based formats (and gzip members) can simply be appended
+            FileOutputStream out = new FileOutputStream(resultFile);
 
             try {
 
-                int statusCode = httpResponse.getStatusLine().getStatusCode();
+                FileChannel target = out.getChannel();
 
-                switch (statusCode) {
+                for (File file : files) {
 
-                    case 200: {
+                    FileInputStream in = new FileInputStream(file);
 
-                        logger.info("[" + config.getProperty("service.name") + "] " + statusCode + " : " + httpResponse.getStatusLine().getReasonPhrase());
+                    try {
 
-                        break;
-                    }
-                    default: {
+                        FileChannel source = in.getChannel();
 
-                        logger.error("[" + config.getProperty("service.name") + "] " + statusCode + " : " + httpResponse.getStatusLine().getReasonPhrase());
+                        for (long position = 0, size = source.size(); position < size; ) {
+                            position += source.transferTo(position, size - position, target);
+                        }
+                    }
+                    finally {
+                        in.close();
                     }
                 }
-            } finally {
-                httpResponse.close();
             }
-        } finally {
-            httpclient.close();
+            finally {
+
+                out.close();
+
+                for (File file : files) {
+                    file.delete();
+                }
+            }
         }
 
-        return inputDataModelID;
+        return statements;
     }
 
     /**
-     * get the resource id of the resource for the data model for the the prototype project
-     *
-     * @param dataModelID
-     * @return
-     * @throws Exception
+     * @return the handler behind the run-wide deduplication, if any
      */
-    private String getProjectResourceID(String dataModelID) throws Exception {
+    private RDFHandler filter(RDFHandler handler, AtomicLong duplicates) {
 
-        String resourceID = null;
-
-        CloseableHttpClient httpclient = HttpClients.createDefault();
-
-        try {
+        return dedup != null ? dedup.filter(handler, duplicates) : handler;
+    }
 
-            // Hole Mappings aus dem Projekt mit 'projectID'
-            HttpGet httpGet = new HttpGet(config.getProperty("engine.dswarm.api") + "datamodels/" + dataModelID);
+    /**
+     * @return the RDFFormat for 'results.rdf.format'
+     */
+    private RDFFormat getRdfFormat() {
 
-            CloseableHttpResponse httpResponse = httpclient.execute(httpGet);
+        RDFFormat format = RdfFormats.forName(config.getProperty("results.rdf.format"));
 
-            logger.info("[" + config.getProperty("service.name") + "] " + "request : " + httpGet.getRequestLine());
+        // unknown formats are reported once at startup
+        return format != null ? format : RDFFormat.RDFXML;
+    }
 
-            try {
+    /**
+     * update the datamodel with the given ID
+     *
+     * @param inputDataModelID
+     * @return
+     * @throws Exception
+     */
+    private String updateDataModel(String inputDataModelID) throws Exception {
 
-                int statusCode = httpResponse.getStatusLine().getStatusCode();
-                HttpEntity httpEntity = httpResponse.getEntity();
+        CloseableHttpResponse httpResponse;
 
-                switch (statusCode) {
+        // Update the existing input Data Model (we are simply using the example data model here ... TODO !)
+        HttpPost httpPost = new HttpPost(config.getProperty("engine.dswarm.api") + "datamodels/" + inputDataModelID + "/data");
 
-                    case 200: {
+        logger.info("[" + config.getProperty("service.name") + "] inputDataModelID : " + inputDataModelID);
+        logger.info("[" + config.getProperty("service.name") + "] " + "request : " + httpPost.getRequestLine());
 
-                        StringWriter writer = new StringWriter();
-                        IOUtils.copy(httpEntity.getContent(), writer, "UTF-8");
-                        String responseJson = writer.toString();
+        httpResponse = httpclient.execute(httpPost);
 
-                        logger.info("[" + config.getProperty("service.name") + "] responseJson : " + responseJson);
+        try {
 
-                        JsonReader jsonReader = Json.createReader(IOUtils.toInputStream(responseJson, "UTF-8"));
-                        JsonObject jsonObject = jsonReader.readObject();
-                        JsonArray resources = jsonObject.getJsonObject("configuration").getJsonArray("resources");
+            int statusCode = httpResponse.getStatusLine().getStatusCode();
 
-                        resourceID = resources.getJsonObject(0).getJsonString("uuid").getString();
+            switch (statusCode) {
 
-                        logger.info("[" + config.getProperty("service.name") + "] resourceID : " + resourceID);
+                case 200: {
 
-                        break;
-                    }
-                    default: {
+                    logger.info("[" + config.getProperty("service.name") + "] " + statusCode + " : " + httpResponse.getStatusLine().getReasonPhrase());
 
-                        logger.error("[" + config.getProperty("service.name") + "] " + statusCode + " : " + httpResponse.getStatusLine().getReasonPhrase());
-                    }
+                    break;
                 }
+                default: {
 
-                EntityUtils.consume(httpEntity);
-            } finally {
-                httpResponse.close();
+                    logger.error("[" + config.getProperty("service.name") + "] " + statusCode + " : " + httpResponse.getStatusLine().getReasonPhrase());
+                }
             }
 
+            // consume the entity so that the pooled connection can be reused
+            EntityUtils.consume(httpResponse.getEntity());
         } finally {
-            httpclient.close();
+            httpResponse.close();
         }
 
-        return resourceID;
+        return inputDataModelID;
     }
 
     /**
      * upload a file and update an existing resource with it
      *
      * @param resourceUUID
-     * @param filename
+     * @param file
      * @param name
      * @param description
      * @return responseJson
      * @throws Exception
      */
-    private String uploadFileAndUpdateResource(String resourceUUID, String filename, String name, String description) throws Exception {
+    private String uploadFileAndUpdateResource(String resourceUUID, String file, String name, String description) throws Exception {
 
         if (null == resourceUUID) throw new Exception("ID of the resource to update was null.");
 
         String responseJson = null;
 
-        String file = config.getProperty("resource.watchfolder") + File.separatorChar +  filename;
-
-        // ggf. Preprocessing: insert CDATA in XML and write new XML file to tmp folder
-        if (Boolean.parseBoolean(config.getProperty("resource.preprocessing"))) {
-
-            Document document = new SAXBuilder().build(new File(file));
-
-            file = config.getProperty("preprocessing.folder") + File.separatorChar + UUID.randomUUID() + ".xml";
+        ContentBody fileBody;
 
-            XMLOutputter out = new XMLOutputter(Format.getPrettyFormat());
-            BufferedWriter bufferedWriter = null;
-            try {
+        if (Boolean.parseBoolean(config.getProperty("resource.preprocessing")) && Boolean.parseBoolean(config.getProperty("preprocessing.streaming"))) {
 
-                bufferedWriter = new BufferedWriter(new FileWriter(file));
+            // Preprocessing while uploading: the transformation result is streamed into the request body
+            fileBody = new TransformedFileBody(new File(file), config.getProperty("preprocessing.xslt"), null);
+        }
+        else {
 
-                out.output(new SAXBuilder().build(new StringReader(XmlTransformer.xmlOutputter(document, config.getProperty("preprocessing.xslt"), null))), bufferedWriter);
-            }
-            finally {
-                if (bufferedWriter != null) {
-                    bufferedWriter.close();
-                }
-            }
+            fileBody = new FileBody(new File(file));
         }
 
         // upload
-        CloseableHttpClient httpclient = HttpClients.createDefault();
-
-        try {
-            HttpPut httpPut = new HttpPut(config.getProperty("engine.dswarm.api") + "resources/" + resourceUUID);
+        HttpPut httpPut = new HttpPut(config.getProperty("engine.dswarm.api") + "resources/" + resourceUUID);
 
-            FileBody fileBody = new FileBody(new File(file));
-            StringBody stringBodyForName = new StringBody(name, ContentType.TEXT_PLAIN);
-            StringBody stringBodyForDescription = new StringBody(description, ContentType.TEXT_PLAIN);
+        StringBody stringBodyForName = new StringBody(name, ContentType.TEXT_PLAIN);
+        StringBody stringBodyForDescription = new StringBody(description, ContentType.TEXT_PLAIN);
 
-            HttpEntity reqEntity = MultipartEntityBuilder.create()
-                    .addPart("file", fileBody)
-                    .addPart("name", stringBodyForName)
-                    .addPart("description", stringBodyForDescription)
-                    .build();
+        HttpEntity reqEntity = MultipartEntityBuilder.create()
+                .addPart("file", fileBody)
+                .addPart("name", stringBodyForName)
+                .addPart("description", stringBodyForDescription)
+                .build();
 
-            httpPut.setEntity(reqEntity);
+        httpPut.setEntity(Compression.compress(reqEntity, config));
 
-            logger.info("[" + config.getProperty("service.name") + "] " + "request : " + httpPut.getRequestLine());
+        logger.info("[" + config.getProperty("service.name") + "] " + "request : " + httpPut.getRequestLine());
 
-            CloseableHttpResponse httpResponse = httpclient.execute(httpPut);
-
-            try {
-                int statusCode = httpResponse.getStatusLine().getStatusCode();
-                HttpEntity httpEntity = httpResponse.getEntity();
+        CloseableHttpResponse httpResponse = httpclient.execute(httpPut);
 
-                switch (statusCode) {
+        try {
+            int statusCode = httpResponse.getStatusLine().getStatusCode();
+            HttpEntity httpEntity = httpResponse.getEntity();
 
-                    case 200: {
+            switch (statusCode) {
 
-                        logger.info("[" + config.getProperty("service.name") + "] " + statusCode + " : " + httpResponse.getStatusLine().getReasonPhrase());
-                        StringWriter writer = new StringWriter();
-                        IOUtils.copy(httpEntity.getContent(), writer, "UTF-8");
-                        responseJson = writer.toString();
+                case 200: {
 
-                        logger.info("[" + config.getProperty("service.name") + "] responseJson : " + responseJson);
+                    logger.info("[" + config.getProperty("service.name") + "] " + statusCode + " : " + httpResponse.getStatusLine().getReasonPhrase());
+                    StringWriter writer = new StringWriter();
+                    IOUtils.copy(httpEntity.getContent(), writer, "UTF-8");
+                    responseJson = writer.toString();
 
-                        break;
-                    }
-                    default: {
+                    PayloadLogger.log("responseJson", responseJson);
 
-                        logger.error("[" + config.getProperty("service.name") + "] " + statusCode + " : " + httpResponse.getStatusLine().getReasonPhrase());
-                    }
+                    break;
                 }
+                default: {
 
-                EntityUtils.consume(httpEntity);
-            } finally {
-                httpResponse.close();
+                    logger.error("[" + config.getProperty("service.name") + "] " + statusCode + " : " + httpResponse.getStatusLine().getReasonPhrase());
+                }
             }
+
+            EntityUtils.consume(httpEntity);
         } finally {
-            httpclient.close();
+            httpResponse.close();
         }
 
         return responseJson;
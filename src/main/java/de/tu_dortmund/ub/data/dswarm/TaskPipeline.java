@@ -0,0 +1,205 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.dswarm;
+
+import de.tu_dortmund.ub.data.util.ExecutorFactory;
+import org.apache.log4j.Logger;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.*;
+
+/**
+ * Staged execution of tasks ('engine.pipeline=true')
+ *
+ * Each task runs through three stages with their own thread pools:
+ * <ol>
+ *     <li>preprocess: local preprocessing of the resource ('engine.stage.preprocess.threads', default 1)</li>
+ *     <li>dswarm: upload, update of the data model and execution of the d:swarm task; the result is spooled to
+ *     'engine.stage.spool' ('engine.stage.dswarm.threads', default 'engine.threads')</li>
+ *     <li>convert: conversion of the spooled result to rdf ('engine.stage.convert.threads', default number of cores)</li>
+ * </ol>
+ * The stages are connected by queues of 'engine.stage.queue' tasks; a stage blocks if the queue of the next stage is full.
+ * So the conversion of one file overlaps with the d:swarm execution of the next one.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker, M.L.I.S. (UB Dortmund)
+ * @version 2015-04-30
+ *
+ */
+public class TaskPipeline {
+
+    private Properties config = null;
+    private Logger logger = null;
+
+    private ThreadPoolExecutor preprocessPool;
+    private ThreadPoolExecutor dswarmPool;
+    private ThreadPoolExecutor convertPool;
+
+    private BlockingQueue<String> messages = new LinkedBlockingQueue<String>();
+
+    public TaskPipeline(Properties config, Logger logger) {
+
+        this.config = config;
+        this.logger = logger;
+
+        int queue = Integer.parseInt(config.getProperty("engine.stage.queue", "2"));
+
+        this.preprocessPool = createStage(Integer.parseInt(config.getProperty("engine.stage.preprocess.threads", "1")), queue);
+        this.dswarmPool = createStage(Integer.parseInt(config.getProperty("engine.stage.dswarm.threads", config.getProperty("engine.threads"))), queue);
+        this.convertPool = createStage(Integer.parseInt(config.getProperty("engine.stage.convert.threads", String.valueOf(Runtime.getRuntime().availableProcessors()))), queue);
+    }
+
+    private static ThreadPoolExecutor createStage(int threads, int queue) {
+
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queue), ExecutorFactory.BLOCK);
+    }
+
+    /**
+     * run the tasks through the pipeline and report each result as soon as its task has finished
+     *
+     * @param tasks
+     * @throws InterruptedException
+     */
+    public void execute(List<Task> tasks) throws InterruptedException {
+
+        try {
+
+            for (Task task : tasks) {
+
+                preprocessPool.execute(preprocess(task));
+            }
+
+            for (int i = 0; i < tasks.size(); i++) {
+
+                String message = messages.take();
+
+                logger.info("[" + config.getProperty("service.name") + "] " + message);
+                System.out.println("[" + config.getProperty("service.name") + "] " + message);
+            }
+        }
+        finally {
+
+            preprocessPool.shutdown();
+            dswarmPool.shutdown();
+            convertPool.shutdown();
+        }
+    }
+
+    private Runnable preprocess(final Task task) {
+
+        return new Runnable() {
+
+            @Override
+            public void run() {
+
+                try {
+
+                    String message = task.preprocess();
+
+                    if (message == null) {
+                        dswarmPool.execute(dswarm(task));
+                    }
+                    else {
+                        messages.add(task.finish(message));
+                    }
+                }
+                catch (RuntimeException e) {
+
+                    messages.add(task.finish(aborted(task, e)));
+                }
+                catch (Error e) {
+
+                    // the batch waits for one message per task
+                    messages.add(task.finish(aborted(task, e)));
+                    throw e;
+                }
+            }
+        };
+    }
+
+    private Runnable dswarm(final Task task) {
+
+        return new Runnable() {
+
+            @Override
+            public void run() {
+
+                try {
+
+                    String message = task.execute(true);
+
+                    if (message == null) {
+                        convertPool.execute(convert(task));
+                    }
+                    else {
+                        messages.add(task.finish(message));
+                    }
+                }
+                catch (RuntimeException e) {
+
+                    messages.add(task.finish(aborted(task, e)));
+                }
+                catch (Error e) {
+
+                    // the batch waits for one message per task
+                    messages.add(task.finish(aborted(task, e)));
+                    throw e;
+                }
+            }
+        };
+    }
+
+    private Runnable convert(final Task task) {
+
+        return new Runnable() {
+
+            @Override
+            public void run() {
+
+                try {
+
+                    messages.add(task.finish(task.convert()));
+                }
+                catch (RuntimeException e) {
+
+                    messages.add(task.finish(aborted(task, e)));
+                }
+                catch (Error e) {
+
+                    // the batch waits for one message per task
+                    messages.add(task.finish(aborted(task, e)));
+                    throw e;
+                }
+            }
+        };
+    }
+
+    private String aborted(Task task, Throwable e) {
+
+        e.printStackTrace();
+
+        return "'" + task.getResource() + "' not transformed: pipeline aborted with a " + e.getClass().getSimpleName() + ".";
+    }
+}
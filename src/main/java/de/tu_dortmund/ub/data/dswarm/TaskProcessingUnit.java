@@ -24,14 +24,18 @@ SOFTWARE.
 
 package de.tu_dortmund.ub.data.dswarm;
 
+import de.tu_dortmund.ub.data.util.ExecutorFactory;
+import de.tu_dortmund.ub.data.util.FairScheduler;
+import de.tu_dortmund.ub.data.util.HttpClientFactory;
+import de.tu_dortmund.ub.data.util.LogConfigurator;
+import de.tu_dortmund.ub.data.util.MetricsExporter;
+import de.tu_dortmund.ub.data.util.RdfFormats;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.log4j.Logger;
-import org.apache.log4j.PropertyConfigurator;
+import org.apache.log4j.LogManager;
 
 import java.io.*;
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Properties;
+import java.util.*;
 import java.util.concurrent.*;
 
 /**
@@ -87,67 +91,279 @@ public class TaskProcessingUnit {
             System.out.println("FATAL ERROR: Could not read '" + conffile + "'!");
         }
 
-        // init logger
-        PropertyConfigurator.configure(config.getProperty("service.log4j-conf"));
+        System.out.println("[" + config.getProperty("service.name") + "] " + "conf-file = " + conffile);
+
+        run(config);
+    }
+
+    /**
+     * process 'resource.watchfolder' with the given configuration (e.g. for load tests)
+     *
+     * @param properties
+     * @throws Exception
+     */
+    public static void run(Properties properties) throws Exception {
+
+        config = properties;
+
+        // init logger (once for all tasks)
+        LogConfigurator.configure(config);
 
         logger.info("[" + config.getProperty("service.name") + "] " + "Starting 'Task Processing Unit' ...");
-        logger.info("[" + config.getProperty("service.name") + "] " + "conf-file = " + conffile);
         logger.info("[" + config.getProperty("service.name") + "] " + "log4j-conf-file = " + config.getProperty("service.log4j-conf"));
         System.out.println("[" + config.getProperty("service.name") + "] " + "Starting 'Task Processing Unit' ...");
-        System.out.println("[" + config.getProperty("service.name") + "] " + "conf-file = " + conffile);
         System.out.println("[" + config.getProperty("service.name") + "] " + "log4j-conf-file = " + config.getProperty("service.log4j-conf"));
 
-        String[] files = new File(config.getProperty("resource.watchfolder")).list();
-        logger.info("[" + config.getProperty("service.name") + "] " + "Files in " + config.getProperty("resource.watchfolder"));
-        logger.info(Arrays.toString(files));
-        System.out.println("[" + config.getProperty("service.name") + "] " + "Files in " + config.getProperty("resource.watchfolder"));
-        System.out.println(Arrays.toString(files));
+        // job manifests are processed in batch mode on the shared workers only
+        if (config.getProperty("engine.jobs") != null && ("daemon".equals(config.getProperty("engine.mode")) || Boolean.parseBoolean(config.getProperty("engine.pipeline")))) {
 
-        // Init time counter
-        long global = System.currentTimeMillis();
+            logger.error("[" + config.getProperty("service.name") + "] " + "engine.jobs cannot be combined with engine.mode=daemon or engine.pipeline=true.");
+            System.out.println("FATAL ERROR: engine.jobs cannot be combined with engine.mode=daemon or engine.pipeline=true!");
 
-        // run ThreadPool
-        executeTasks(files);
+            throw new IllegalArgumentException("engine.jobs cannot be combined with engine.mode=daemon or engine.pipeline=true.");
+        }
+
+        if (Boolean.parseBoolean(config.getProperty("results.persistInFolder")) && RdfFormats.forName(config.getProperty("results.rdf.format")) == null) {
+
+            logger.warn("[" + config.getProperty("service.name") + "] " + "Unknown results.rdf.format '" + config.getProperty("results.rdf.format") + "'. Using RDF/XML. Supported formats: " + RdfFormats.names());
+            System.out.println("[" + config.getProperty("service.name") + "] " + "Unknown results.rdf.format '" + config.getProperty("results.rdf.format") + "'. Using RDF/XML.");
+        }
+
+        // metrics of the run (JMX, 'engine.metrics.file', 'engine.metrics.port')
+        MetricsExporter metrics = new MetricsExporter(config, logger);
+
+        try {
 
-        logger.info("[" + config.getProperty("service.name") + "] " + "d:swarm tasks executed. (Processing time: " + ((System.currentTimeMillis() - global) / 1000) + " s)");
-        System.out.println("[" + config.getProperty("service.name") + "] " + "d:swarm tasks executed. (Processing time: " + ((System.currentTimeMillis() - global) / 1000) + " s)");
+            metrics.start();
+        }
+        catch (IOException e) {
+
+            logger.error("[" + config.getProperty("service.name") + "] " + "Could not export the metrics: " + e.getMessage());
+        }
+
+        // one pooled http client for all tasks (of all projects)
+        CloseableHttpClient httpclient = HttpClientFactory.create(config);
+
+        try {
+
+            if (config.getProperty("engine.jobs") != null) {
+
+                // several projects sharing the workers
+                executeJobs(httpclient);
+            }
+            else {
+
+                Project project = new Project(config, logger, httpclient);
+
+                try {
+
+                    if (project.open()) {
+                        execute(project);
+                    }
+                }
+                finally {
+                    project.close();
+                }
+            }
+        }
+        finally {
+
+            httpclient.close();
+
+            // summary table
+            metrics.stop();
+
+            // flush asynchronous appenders
+            LogManager.shutdown();
+        }
     }
 
-    private static void executeTasks(String[] files) throws Exception {
+    private static void execute(Project project) throws Exception {
+
+        if ("daemon".equals(config.getProperty("engine.mode"))) {
+
+            // keep watching 'resource.watchfolder' until the JVM is stopped
+            final WatchFolderDaemon daemon = project.createDaemon();
+            final Thread mainThread = Thread.currentThread();
+
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+
+                @Override
+                public void run() {
 
-        // create job list
-        LinkedList<Callable<String>> filesToPush = new LinkedList<Callable<String>>();
+                    daemon.stop();
 
-        int cnt = 0;
-        for (String file : files) {
+                    try {
+                        mainThread.join();
+                    }
+                    catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                }
+            });
 
-            cnt++;
-            filesToPush.add(new Task(config, logger, file, cnt));
+            daemon.run();
         }
+        else {
+
+            // Init time counter
+            long global = System.currentTimeMillis();
+
+            List<Task> tasks = project.createTasks();
+
+            while (true) {
+
+                if (Boolean.parseBoolean(config.getProperty("engine.pipeline"))) {
+
+                    // staged execution with separate pools for preprocessing, d:swarm and conversion
+                    new TaskPipeline(config, logger).execute(tasks);
+                }
+                else {
+
+                    // run ThreadPool
+                    int threads = Integer.parseInt(config.getProperty("engine.threads"));
+
+                    executeTasks(tasks, Integer.parseInt(config.getProperty("engine.queue", String.valueOf(2 * threads))));
+                }
+
+                // with 'engine.leases': take over the files of nodes which stopped renewing their leases
+                if (!project.awaitExpiredLeases()) {
+                    break;
+                }
+
+                tasks = project.createTasks();
+            }
+
+            logger.info("[" + config.getProperty("service.name") + "] " + "d:swarm tasks executed. (Processing time: " + ((System.currentTimeMillis() - global) / 1000) + " s)");
+            System.out.println("[" + config.getProperty("service.name") + "] " + "d:swarm tasks executed. (Processing time: " + ((System.currentTimeMillis() - global) / 1000) + " s)");
+        }
+    }
+
+    /**
+     * process the projects of the job manifest 'engine.jobs' (batch mode) on one pool of 'engine.threads' workers;
+     * their tasks are dispatched by weighted fair queuing with the file size as cost
+     */
+    private static void executeJobs(CloseableHttpClient httpclient) throws Exception {
+
+        ArrayList<Project> projects = new ArrayList<Project>();
+        FairScheduler<Task> scheduler = new FairScheduler<Task>();
+
+        try {
+
+            for (Properties jobConfig : JobManifest.load(config)) {
+
+                String job = jobConfig.getProperty(JobManifest.JOB);
+
+                logger.info("[" + config.getProperty("service.name") + "] " + "job '" + job + "' : project '" + jobConfig.getProperty("project.name") + "', weight " + jobConfig.getProperty(JobManifest.WEIGHT));
+                System.out.println("[" + config.getProperty("service.name") + "] " + "job '" + job + "' : project '" + jobConfig.getProperty("project.name") + "', weight " + jobConfig.getProperty(JobManifest.WEIGHT));
+
+                Project project = new Project(jobConfig, logger, httpclient);
+                projects.add(project);
+
+                if (!project.open()) {
+
+                    // the other jobs are processed anyway
+                    logger.error("[" + config.getProperty("service.name") + "] " + "job '" + job + "' skipped.");
+                    continue;
+                }
+
+                scheduler.addQueue(job, Double.parseDouble(jobConfig.getProperty(JobManifest.WEIGHT)));
+
+                for (Task task : project.createTasks()) {
+                    scheduler.add(job, task, task.getCost());
+                }
+            }
+
+            // Init time counter
+            long global = System.currentTimeMillis();
+
+            // the queue is short, so that the order is decided when a worker becomes free
+            executeTasks(scheduler, Integer.parseInt(config.getProperty("engine.queue", "1")));
+
+            // with 'engine.leases': take over the files of nodes which stopped renewing their leases
+            for (Project project : projects) {
+
+                while (project.awaitExpiredLeases()) {
+                    executeTasks(project.createTasks(), Integer.parseInt(config.getProperty("engine.queue", "1")));
+                }
+            }
+
+            logger.info("[" + config.getProperty("service.name") + "] " + "d:swarm tasks of " + projects.size() + " jobs executed. (Processing time: " + ((System.currentTimeMillis() - global) / 1000) + " s)");
+            System.out.println("[" + config.getProperty("service.name") + "] " + "d:swarm tasks of " + projects.size() + " jobs executed. (Processing time: " + ((System.currentTimeMillis() - global) / 1000) + " s)");
+        }
+        finally {
+
+            for (Project project : projects) {
+
+                try {
+                    project.close();
+                }
+                catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param tasks tasks in the order of execution; the next task is taken when there is room in the queue
+     * @param queue at most 'queue' tasks wait for a free worker ('engine.threads' tasks run on virtual threads)
+     */
+    private static void executeTasks(Iterable<Task> tasks, int queue) throws Exception {
 
         // work on jobs
-        ThreadPoolExecutor pool = new ThreadPoolExecutor(Integer.parseInt(config.getProperty("engine.threads")), Integer.parseInt(config.getProperty("engine.threads")), 0L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        int threads = Integer.parseInt(config.getProperty("engine.threads"));
+
+        ExecutorService pool = ExecutorFactory.create(config, logger, threads, Math.max(1, queue));
+        CompletionService<String> completionService = new ExecutorCompletionService<String>(pool);
 
         try {
 
-            List<Future<String>> futureList = pool.invokeAll(filesToPush);
+            int submitted = 0;
+            int completed = 0;
 
-            for (Future<String> f : futureList) {
+            for (Task task : tasks) {
 
-                String message = f.get();
+                // report finished tasks until there is room in the queue
+                while (submitted - completed >= threads + queue) {
 
-                logger.info("[" + config.getProperty("service.name") + "] " + message);
-                System.out.println("[" + config.getProperty("service.name") + "] " + message);
+                    report(completionService.take());
+                    completed++;
+                }
 
+                completionService.submit(task);
+                submitted++;
             }
 
-            pool.shutdown();
+            // report the remaining tasks in order of completion
+            while (completed < submitted) {
 
-        } catch (InterruptedException | ExecutionException e) {
+                report(completionService.take());
+                completed++;
+            }
+
+        } catch (InterruptedException e) {
 
             e.printStackTrace();
 
+        } finally {
+
+            pool.shutdown();
         }
     }
 
+    private static void report(Future<String> future) throws InterruptedException {
+
+        try {
+
+            String message = future.get();
+
+            logger.info("[" + config.getProperty("service.name") + "] " + message);
+            System.out.println("[" + config.getProperty("service.name") + "] " + message);
+
+        } catch (ExecutionException e) {
+
+            e.printStackTrace();
+        }
+    }
 }
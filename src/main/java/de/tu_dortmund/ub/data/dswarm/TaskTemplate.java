@@ -0,0 +1,262 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.dswarm;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.apache.log4j.Logger;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache for the parts of a d:swarm task which are fixed for the whole run
+ *
+ * The mappings of the prototype project, the prototype (input) data model, its resource and the output data model
+ * are fetched once. If 'engine.template.ttl' (seconds) is set, the cached documents are revalidated after that time
+ * using the ETags sent by d:swarm, so a long running process picks up changes of the prototype project.
+ *
+ * A task takes one {@link Snapshot} of all documents, so it never mixes two versions of the prototype project. The
+ * documents are fetched without holding the lock; while one task revalidates, the other tasks use the cached snapshot.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker, M.L.I.S. (UB Dortmund)
+ * @version 2015-04-24
+ *
+ */
+public class TaskTemplate {
+
+    private Properties config = null;
+    private Logger logger = null;
+    private CloseableHttpClient httpclient = null;
+
+    private long ttl;
+    private long loaded = 0L;
+    private boolean revalidating = false;
+
+    private Map<String, String> documents = new ConcurrentHashMap<String, String>();
+    private Map<String, String> etags = new ConcurrentHashMap<String, String>();
+
+    // empty until load()
+    private volatile Snapshot snapshot = new Snapshot(null, null, null, null);
+
+    public TaskTemplate(Properties config, Logger logger, CloseableHttpClient httpclient) {
+
+        this.config = config;
+        this.logger = logger;
+        this.httpclient = httpclient;
+        this.ttl = Long.parseLong(config.getProperty("engine.template.ttl", "0")) * 1000;
+    }
+
+    /**
+     * fetch mappings and data models of the prototype project
+     *
+     * @throws Exception if one of the documents could not be fetched
+     */
+    public void load() throws Exception {
+
+        Snapshot snapshot = fetchSnapshot();
+
+        synchronized (this) {
+
+            this.snapshot = snapshot;
+            this.loaded = System.currentTimeMillis();
+        }
+
+        logger.info("[" + config.getProperty("service.name") + "] task template loaded. resourceID : " + snapshot.getInputResourceID());
+    }
+
+    /**
+     * @return the current documents; revalidated first if 'engine.template.ttl' is exceeded and no other task is
+     * revalidating them. On errors the cached documents are kept.
+     */
+    public Snapshot snapshot() {
+
+        synchronized (this) {
+
+            if (ttl <= 0 || revalidating || System.currentTimeMillis() - loaded < ttl) {
+                return snapshot;
+            }
+
+            revalidating = true;
+        }
+
+        Snapshot revalidated = null;
+
+        try {
+
+            revalidated = fetchSnapshot();
+        }
+        catch (Exception e) {
+
+            logger.error("[" + config.getProperty("service.name") + "] Revalidating the task template failed with a " + e.getClass().getSimpleName() + ". Using cached template.");
+        }
+        finally {
+
+            synchronized (this) {
+
+                if (revalidated != null) {
+                    this.snapshot = revalidated;
+                }
+
+                this.loaded = System.currentTimeMillis();
+                this.revalidating = false;
+            }
+        }
+
+        return snapshot;
+    }
+
+    private Snapshot fetchSnapshot() throws Exception {
+
+        String projectJson = fetch("projects/" + config.getProperty("prototype.projectID"));
+        String inputDataModelJson = fetch("datamodels/" + config.getProperty("prototype.dataModelID"));
+        String outputDataModelJson = fetch("datamodels/" + config.getProperty("prototype.outputDataModelID"));
+
+        JsonReader jsonReader = Json.createReader(IOUtils.toInputStream(projectJson, "UTF-8"));
+        String mappings = jsonReader.readObject().getJsonArray("mappings").toString();
+
+        jsonReader = Json.createReader(IOUtils.toInputStream(inputDataModelJson, "UTF-8"));
+        JsonObject jsonObject = jsonReader.readObject();
+        String inputResourceID = jsonObject.getJsonObject("configuration").getJsonArray("resources").getJsonObject(0).getString("uuid");
+
+        return new Snapshot(mappings, inputDataModelJson, inputResourceID, outputDataModelJson);
+    }
+
+    /**
+     * GET a document from d:swarm; a cached copy is returned if d:swarm answers '304 Not Modified'
+     *
+     * @param path
+     * @return responseJson
+     * @throws Exception
+     */
+    private String fetch(String path) throws Exception {
+
+        String responseJson = null;
+
+        HttpGet httpGet = new HttpGet(config.getProperty("engine.dswarm.api") + path);
+
+        if (etags.containsKey(path)) {
+            httpGet.setHeader("If-None-Match", etags.get(path));
+        }
+
+        CloseableHttpResponse httpResponse = httpclient.execute(httpGet);
+
+        logger.info("[" + config.getProperty("service.name") + "] " + "request : " + httpGet.getRequestLine());
+
+        try {
+
+            int statusCode = httpResponse.getStatusLine().getStatusCode();
+            HttpEntity httpEntity = httpResponse.getEntity();
+
+            switch (statusCode) {
+
+                case 200: {
+
+                    StringWriter writer = new StringWriter();
+                    IOUtils.copy(httpEntity.getContent(), writer, "UTF-8");
+                    responseJson = writer.toString();
+
+                    documents.put(path, responseJson);
+
+                    Header etag = httpResponse.getFirstHeader("ETag");
+                    if (etag != null) {
+                        etags.put(path, etag.getValue());
+                    }
+
+                    break;
+                }
+                case 304: {
+
+                    responseJson = documents.get(path);
+
+                    break;
+                }
+                default: {
+
+                    logger.error("[" + config.getProperty("service.name") + "] " + statusCode + " : " + httpResponse.getStatusLine().getReasonPhrase());
+                }
+            }
+
+            EntityUtils.consume(httpEntity);
+        } finally {
+            httpResponse.close();
+        }
+
+        if (responseJson == null) {
+            throw new Exception("Could not fetch '" + path + "' from d:swarm.");
+        }
+
+        return responseJson;
+    }
+
+    /**
+     * the documents of the prototype project at one point in time
+     */
+    public static class Snapshot {
+
+        private final String mappings;
+        private final String inputDataModel;
+        private final String inputResourceID;
+        private final String outputDataModel;
+
+        Snapshot(String mappings, String inputDataModel, String inputResourceID, String outputDataModel) {
+
+            this.mappings = mappings;
+            this.inputDataModel = inputDataModel;
+            this.inputResourceID = inputResourceID;
+            this.outputDataModel = outputDataModel;
+        }
+
+        public String getMappings() {
+
+            return mappings;
+        }
+
+        public String getInputDataModel() {
+
+            return inputDataModel;
+        }
+
+        public String getInputResourceID() {
+
+            return inputResourceID;
+        }
+
+        public String getOutputDataModel() {
+
+            return outputDataModel;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.dswarm;
+
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.vocabulary.RDF;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Factory for the RDF terms of the DMP JSON result
+ *
+ * A value is an IRI if it contains a ':' - the same rule as {@link org.openrdf.model.impl.URIImpl}, so no exception
+ * has to be thrown and caught for literals. Predicates and types repeat in every record; they are interned in two LRU
+ * caches of at most 'cacheSize' IRIs each (the same string is rdf:type as a predicate, but not as a type). Not
+ * thread-safe: one factory per converter.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker, M.L.I.S. (UB Dortmund)
+ * @version 2015-05-13
+ *
+ */
+public class TermFactory {
+
+    private static final String TYPE_SUFFIX = "rdf-syntax-ns#type";
+
+    private ValueFactory factory;
+    private LinkedHashMap<String, URI> predicates;
+    private LinkedHashMap<String, URI> types;
+
+    public TermFactory(ValueFactory factory, int cacheSize) {
+
+        this.factory = factory;
+        this.predicates = cache(cacheSize);
+        this.types = cache(cacheSize);
+    }
+
+    private static LinkedHashMap<String, URI> cache(final int cacheSize) {
+
+        return new LinkedHashMap<String, URI>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, URI> eldest) {
+
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * @return true if {@link ValueFactory#createURI(String)} accepts the value
+     */
+    public static boolean isIri(String value) {
+
+        return value.indexOf(':') >= 0;
+    }
+
+    public static boolean isType(String key) {
+
+        return key.endsWith(TYPE_SUFFIX);
+    }
+
+    /**
+     * @return the interned IRI; rdf:type for all keys ending with 'rdf-syntax-ns#type'
+     */
+    public URI predicate(String key) {
+
+        URI predicate = predicates.get(key);
+
+        if (predicate == null) {
+
+            predicate = isType(key) ? RDF.TYPE : factory.createURI(key);
+            predicates.put(key, predicate);
+        }
+
+        return predicate;
+    }
+
+    /**
+     * @return the interned IRI of a type; a literal if the value is no IRI
+     */
+    public Value type(String value) {
+
+        if (!isIri(value)) {
+            return factory.createLiteral(value);
+        }
+
+        URI type = types.get(value);
+
+        if (type == null) {
+
+            type = factory.createURI(value);
+            types.put(value, type);
+        }
+
+        return type;
+    }
+
+    /**
+     * @return an IRI or a literal
+     */
+    public Value object(String value) {
+
+        return isIri(value) ? factory.createURI(value) : factory.createLiteral(value);
+    }
+
+    public URI subject(String value) {
+
+        return factory.createURI(value);
+    }
+}
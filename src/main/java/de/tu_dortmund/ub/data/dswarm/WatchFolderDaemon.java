@@ -0,0 +1,434 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.dswarm;
+
+import de.tu_dortmund.ub.data.util.ExecutorFactory;
+import de.tu_dortmund.ub.data.util.ResourceSplitter;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Daemon mode of the Task Processing Unit ('engine.mode=daemon')
+ *
+ * The watch folder is registered with a {@link WatchService}. A file is submitted as soon as its size and
+ * modification time did not change for 'engine.daemon.settle' milliseconds, so partially written files are not
+ * processed. Files whose names start with '.' are ignored. At most 'engine.daemon.queue' files wait for a free worker;
+ * if the queue is full, the daemon blocks until a task has finished. Files larger than 'splitter.threshold' are
+ * split and their chunks are submitted as tasks of their own. With 'engine.manifest', files already processed with the
+ * same content are not submitted again, even after a restart. With 'engine.leases', files processed or claimed by another
+ * node are skipped; the folder is scanned again every 'engine.leases.ttl' seconds, so files whose lease has expired
+ * are taken over.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker, M.L.I.S. (UB Dortmund)
+ * @version 2015-04-29
+ *
+ */
+public class WatchFolderDaemon implements Runnable {
+
+    private Properties config = null;
+    private Logger logger = null;
+    private CloseableHttpClient httpclient = null;
+    private TaskTemplate template = null;
+    private DataModelPool dataModels = null;
+    private Manifest manifest = null;
+    private RepositorySink sink = null;
+    private Deduplicator deduplicator = null;
+    private FileLeases leases = null;
+
+    private Path watchfolder;
+    private long settle;
+    private long interval;
+
+    private ExecutorService pool;
+    private Semaphore slots;
+    private ResourceSplitter splitter;
+
+    private volatile boolean running = true;
+
+    // files seen but not yet settled: {size, lastModified, time of last change}
+    private HashMap<Path, long[]> pending = new HashMap<Path, long[]>();
+
+    // files already submitted with their modification time
+    private HashMap<Path, Long> submitted = new HashMap<Path, Long>();
+
+    // with leases: files skipped because another node claimed them, and time of the last scan for expired leases
+    private Set<Path> claimed = Collections.synchronizedSet(new HashSet<Path>());
+    private long lastScan;
+
+    public WatchFolderDaemon(Properties config, Logger logger, CloseableHttpClient httpclient, TaskTemplate template, DataModelPool dataModels, Manifest manifest, RepositorySink sink, Deduplicator deduplicator, FileLeases leases) {
+
+        this.config = config;
+        this.logger = logger;
+        this.httpclient = httpclient;
+        this.template = template;
+        this.dataModels = dataModels;
+        this.manifest = manifest;
+        this.sink = sink;
+        this.deduplicator = deduplicator;
+        this.leases = leases;
+
+        this.watchfolder = Paths.get(config.getProperty("resource.watchfolder"));
+        this.settle = Long.parseLong(config.getProperty("engine.daemon.settle", "5000"));
+        this.interval = Long.parseLong(config.getProperty("engine.daemon.interval", "1000"));
+
+        int threads = Integer.parseInt(config.getProperty("engine.threads"));
+        int queue = Integer.parseInt(config.getProperty("engine.daemon.queue", String.valueOf(2 * threads)));
+
+        this.pool = ExecutorFactory.create(config, logger, threads, queue);
+        this.slots = new Semaphore(threads + queue);
+        this.splitter = new ResourceSplitter(config);
+    }
+
+    /**
+     * stop watching; running tasks are finished
+     */
+    public void stop() {
+
+        this.running = false;
+    }
+
+    @Override
+    public void run() {
+
+        logger.info("[" + config.getProperty("service.name") + "] " + "Watching " + watchfolder + " ...");
+
+        try {
+
+            WatchService watchService = FileSystems.getDefault().newWatchService();
+
+            try {
+
+                watchfolder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+                // files already in the folder
+                scan();
+                lastScan = System.currentTimeMillis();
+
+                while (running) {
+
+                    WatchKey key = watchService.poll(interval, TimeUnit.MILLISECONDS);
+
+                    if (key != null) {
+
+                        for (WatchEvent<?> event : key.pollEvents()) {
+
+                            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+
+                                scan();
+                            }
+                            else {
+
+                                touch(watchfolder.resolve((Path) event.context()));
+                            }
+                        }
+
+                        if (!key.reset()) {
+
+                            logger.error("[" + config.getProperty("service.name") + "] " + watchfolder + " is no longer accessible.");
+                            break;
+                        }
+                    }
+
+                    if (leases != null && System.currentTimeMillis() - lastScan >= 1000L * Long.parseLong(config.getProperty("engine.leases.ttl", "60"))) {
+
+                        // files of other nodes whose lease may have expired
+                        scan();
+                        lastScan = System.currentTimeMillis();
+                    }
+
+                    submitSettledFiles();
+                }
+            }
+            finally {
+                watchService.close();
+            }
+        }
+        catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+        }
+        catch (IOException e) {
+
+            logger.error("[" + config.getProperty("service.name") + "] Watching " + watchfolder + " failed with a " + e.getClass().getSimpleName());
+            e.printStackTrace();
+        }
+        finally {
+
+            pool.shutdown();
+
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        logger.info("[" + config.getProperty("service.name") + "] " + "Daemon stopped.");
+    }
+
+    private void scan() throws IOException {
+
+        DirectoryStream<Path> stream = Files.newDirectoryStream(watchfolder);
+
+        try {
+
+            for (Path path : stream) {
+                touch(path);
+            }
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    private void touch(Path path) {
+
+        if (path.getFileName().toString().startsWith(".") || !Files.isRegularFile(path)) {
+            return;
+        }
+
+        if (!pending.containsKey(path)) {
+            pending.put(path, new long[] { -1L, -1L, System.currentTimeMillis() });
+        }
+    }
+
+    private void submitSettledFiles() throws InterruptedException {
+
+        long now = System.currentTimeMillis();
+
+        Iterator<Map.Entry<Path, long[]>> iterator = pending.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+
+            Map.Entry<Path, long[]> entry = iterator.next();
+
+            File file = entry.getKey().toFile();
+            long[] state = entry.getValue();
+
+            if (!file.exists()) {
+
+                iterator.remove();
+                continue;
+            }
+
+            long size = file.length();
+            long lastModified = file.lastModified();
+
+            if (size != state[0] || lastModified != state[1]) {
+
+                // still being written
+                state[0] = size;
+                state[1] = lastModified;
+                state[2] = now;
+            }
+            else if (now - state[2] >= settle) {
+
+                iterator.remove();
+
+                Long previous = submitted.get(entry.getKey());
+
+                if (previous == null || previous != lastModified || claimed.remove(entry.getKey())) {
+
+                    submitted.put(entry.getKey(), lastModified);
+                    submit(file);
+                }
+            }
+        }
+    }
+
+    private void submit(File file) throws InterruptedException {
+
+        try {
+
+            String key = manifest != null ? manifest.key(file, file.getName()) : null;
+
+            // a file is split only if it has not been processed as a whole
+            if (key != null && manifest.isDone(key)) {
+
+                logger.info("[" + config.getProperty("service.name") + "] " + "'" + file.getName() + "' unchanged since the last run. Skipped.");
+                return;
+            }
+
+            boolean accepted = splitter.accepts(file);
+
+            FileLeases.Lease lease = null;
+
+            // a file to be split is claimed before it is split, its chunks are covered by this lease
+            if (leases != null && accepted) {
+
+                lease = leases.claim(file.getName(), file);
+
+                if (lease == null) {
+
+                    logger.info("[" + config.getProperty("service.name") + "] " + "'" + file.getName() + "' processed or claimed by another node. Skipped.");
+
+                    if (leases.state(file.getName(), file) == FileLeases.State.CLAIMED) {
+
+                        // submitted again after the next scan if the lease has expired by then
+                        claimed.add(file.toPath());
+                    }
+
+                    return;
+                }
+            }
+
+            List<File> chunks;
+
+            try {
+
+                chunks = accepted ? splitter.split(file) : Collections.<File>emptyList();
+            }
+            catch (IOException e) {
+
+                if (lease != null) {
+                    lease.release();
+                }
+
+                throw e;
+            }
+
+            if (!chunks.isEmpty()) {
+
+                logger.info("[" + config.getProperty("service.name") + "] " + "'" + file.getName() + "' split into " + chunks.size() + " chunks.");
+
+                SplitResource split = new SplitResource(manifest, key);
+                split.setLease(lease);
+
+                int part = 0;
+                for (File chunk : chunks) {
+
+                    part++;
+
+                    String chunkKey = manifest != null ? manifest.key(chunk, file.getName() + "#" + part) : null;
+
+                    if (chunkKey != null && manifest.isDone(chunkKey)) {
+
+                        logger.info("[" + config.getProperty("service.name") + "] " + "'" + chunk.getName() + "' unchanged since the last run. Skipped.");
+                        split.addDone(manifest.getOutput(chunkKey));
+                        chunk.delete();
+                        continue;
+                    }
+
+                    Task task = new Task(config, logger, httpclient, template, dataModels, chunk, file.getName(), part);
+                    task.setSplit(split);
+
+                    // before the task is submitted, it may end right away
+                    split.add();
+
+                    submit(task, chunk, null, file, chunkKey);
+                }
+
+                split.seal();
+            }
+            else {
+
+                // claimed again by the task
+                if (lease != null) {
+                    lease.release();
+                }
+
+                submit(new Task(config, logger, httpclient, template, dataModels, file.getName()), file, file.getName(), file, key);
+            }
+        }
+        catch (IOException e) {
+
+            logger.error("[" + config.getProperty("service.name") + "] Submitting '" + file.getName() + "' failed with a " + e.getClass().getSimpleName());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @param file the resource or a chunk of it
+     * @param name name of the lease or null (a chunk is covered by the lease on its resource)
+     * @param resource the resource
+     * @param key key of the file in the manifest (not done) or null
+     */
+    private void submit(final Task task, File file, String name, File resource, String key) throws InterruptedException, IOException {
+
+        if (key != null) {
+            task.setManifest(manifest, key);
+        }
+
+        if (leases != null && name != null) {
+
+            FileLeases.State state = leases.state(name, resource);
+
+            if (state != FileLeases.State.FREE) {
+
+                logger.info("[" + config.getProperty("service.name") + "] " + "'" + file.getName() + "' processed or claimed by another node. Skipped.");
+
+                if (state == FileLeases.State.CLAIMED) {
+
+                    // submitted again after the next scan if the lease has expired by then
+                    claimed.add(resource.toPath());
+                }
+
+                return;
+            }
+
+            task.setLeases(leases, name, resource);
+        }
+
+        task.setSink(sink);
+        task.setDeduplicator(deduplicator);
+
+        // blocks if all workers are busy and the queue is full
+        slots.acquire();
+
+        pool.execute(new Runnable() {
+
+            @Override
+            public void run() {
+
+                try {
+
+                    String message = task.call();
+
+                    logger.info("[" + config.getProperty("service.name") + "] " + message);
+                    System.out.println("[" + config.getProperty("service.name") + "] " + message);
+                }
+                finally {
+                    slots.release();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,195 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.util;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limit of the number of concurrent requests
+ *
+ * A fixed limit, or an AIMD limit: each request which is answered in time grows the limit by 1/limit (about +1 per
+ * round of requests) while the limit is in use; an error (5xx, 429, I/O) or a slow response cuts it by
+ * 'backoffRatio'. A response is slow if it takes longer than 'maxLatency' ms or, if 'maxLatency' is 0, longer than
+ * 'tolerance' times the average latency.
+ *
+ * Waiting is done on a {@link ReentrantLock}, not on a monitor, so a waiting virtual thread does not pin its carrier.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-08
+ *
+ */
+public class AdaptiveLimit {
+
+    // samples before the average latency is used
+    private static final int WARMUP = 10;
+
+    private final boolean adaptive;
+    private final int min;
+    private final int max;
+    private final double backoffRatio;
+    private final long maxLatency;
+    private final double tolerance;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+
+    private double limit;
+    private int inFlight = 0;
+
+    private double averageLatency = 0;
+    private long samples = 0;
+
+    /**
+     * fixed limit
+     */
+    public AdaptiveLimit(int limit) {
+
+        this.adaptive = false;
+        this.min = limit;
+        this.max = limit;
+        this.limit = limit;
+        this.backoffRatio = 1.0;
+        this.maxLatency = 0;
+        this.tolerance = 0;
+    }
+
+    /**
+     * AIMD limit
+     */
+    public AdaptiveLimit(int initial, int min, int max, double backoffRatio, long maxLatency, double tolerance) {
+
+        this.adaptive = true;
+        this.min = min;
+        this.max = max;
+        this.limit = Math.max(min, Math.min(max, initial));
+        this.backoffRatio = backoffRatio;
+        this.maxLatency = maxLatency;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * wait until a request may be sent
+     */
+    public void acquire() throws InterruptedException {
+
+        lock.lockInterruptibly();
+
+        try {
+
+            while (inFlight >= (int) limit) {
+                available.await();
+            }
+
+            inFlight++;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public void release() {
+
+        lock.lock();
+
+        try {
+
+            inFlight--;
+            available.signal();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * adjust the limit
+     *
+     * @param latency time until the response (ms)
+     * @param dropped true if the request failed because d:swarm is overloaded
+     */
+    public void onSample(long latency, boolean dropped) {
+
+        if (!adaptive) {
+            return;
+        }
+
+        lock.lock();
+
+        try {
+
+            adjust(latency, dropped);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void adjust(long latency, boolean dropped) {
+
+        boolean slow = maxLatency > 0 ? latency > maxLatency : samples >= WARMUP && latency > tolerance * averageLatency;
+
+        if (!dropped) {
+
+            // errors would pull the average down
+            averageLatency = samples == 0 ? latency : 0.9 * averageLatency + 0.1 * latency;
+            samples++;
+        }
+
+        if (dropped || slow) {
+
+            limit = Math.max(min, limit * backoffRatio);
+        }
+        else if (inFlight * 2 >= limit) {
+
+            limit = Math.min(max, limit + 1.0 / limit);
+            available.signalAll();
+        }
+    }
+
+    public int getLimit() {
+
+        lock.lock();
+
+        try {
+            return (int) limit;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+
+        lock.lock();
+
+        try {
+            return inFlight;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+}
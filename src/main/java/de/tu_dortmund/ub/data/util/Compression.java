@@ -0,0 +1,207 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.util;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.entity.GzipCompressingEntity;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Utility Class for compressed result files and request bodies
+ *
+ * 'results.compression': none (default) or gzip. The deflater runs at 'results.compression.level' (default 1, i.e.
+ * fast; the results are mostly disk bound, not size bound) behind a buffer of 'results.compression.buffer' bytes.
+ * gzip members can be concatenated, so compressed shards are appended like uncompressed ones.
+ *
+ * 'engine.http.compression=gzip' sends the resource uploads with 'Content-Encoding: gzip'; the d:swarm backend has
+ * to decode the request body. The entity is HttpClient's {@link GzipCompressingEntity}, but with the deflater level
+ * 'engine.http.compression.level' (default 1, fast) instead of the fixed default level 6 of the library.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-19
+ *
+ */
+public class Compression {
+
+    /**
+     * @return the file extension of 'results.compression' including the dot, or an empty string
+     */
+    public static String getExtension(Properties config) {
+
+        return isGzip(config.getProperty("results.compression", "none")) ? ".gz" : "";
+    }
+
+    /**
+     * @return a buffered stream to the file, compressed as configured in 'results.compression'
+     */
+    public static OutputStream create(File file, Properties config) throws IOException {
+
+        int buffer = Integer.parseInt(config.getProperty("results.compression.buffer", "65536"));
+
+        OutputStream out = new FileOutputStream(file);
+
+        if (isGzip(config.getProperty("results.compression", "none"))) {
+
+            try {
+                out = gzip(out, buffer, Integer.parseInt(config.getProperty("results.compression.level", "1")));
+            }
+            catch (IOException e) {
+
+                out.close();
+                throw e;
+            }
+        }
+
+        return new BufferedOutputStream(out, buffer);
+    }
+
+    /**
+     * @return the entity, compressed as configured in 'engine.http.compression'
+     */
+    public static HttpEntity compress(HttpEntity entity, Properties config) {
+
+        if (!isGzip(config.getProperty("engine.http.compression", "none"))) {
+            return entity;
+        }
+
+        return new GzipEntity(entity, Integer.parseInt(config.getProperty("engine.http.compression.level", "1")));
+    }
+
+    private static boolean isGzip(String compression) {
+
+        switch (compression) {
+
+            case "none": {
+
+                return false;
+            }
+            case "gzip": {
+
+                return true;
+            }
+            default: {
+
+                throw new IllegalArgumentException("Unsupported compression '" + compression + "'. Use 'none' or 'gzip'.");
+            }
+        }
+    }
+
+    private static GZIPOutputStream gzip(OutputStream out, int buffer, final int level) throws IOException {
+
+        return new GZIPOutputStream(out, buffer) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+
+    /**
+     * request body compressed while it is sent; repeatable if the wrapped entity is
+     */
+    private static class GzipEntity extends GzipCompressingEntity {
+
+        // gzip header (RFC 1952) without a file name or time, as written by GZIPOutputStream
+        private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+        private int level;
+
+        private GzipEntity(HttpEntity entity, int level) {
+
+            super(entity);
+
+            this.level = level;
+        }
+
+        /**
+         * @return the wrapped content, compressed while it is read
+         */
+        @Override
+        public InputStream getContent() throws IOException {
+
+            final CRC32 crc = new CRC32();
+            final Deflater deflater = new Deflater(level, true);
+
+            // the trailer is known when the compressed data has been read
+            InputStream trailer = new InputStream() {
+
+                private InputStream bytes = null;
+
+                @Override
+                public int read() throws IOException {
+
+                    if (bytes == null) {
+
+                        long size = deflater.getBytesRead();
+                        deflater.end();
+
+                        bytes = new ByteArrayInputStream(new byte[] {
+                                (byte) crc.getValue(), (byte) (crc.getValue() >> 8), (byte) (crc.getValue() >> 16), (byte) (crc.getValue() >> 24),
+                                (byte) size, (byte) (size >> 8), (byte) (size >> 16), (byte) (size >> 24) });
+                    }
+
+                    return bytes.read();
+                }
+            };
+
+            InputStream deflated = new DeflaterInputStream(new CheckedInputStream(wrappedEntity.getContent(), crc), deflater);
+
+            return new FilterInputStream(new SequenceInputStream(Collections.enumeration(Arrays.asList(new ByteArrayInputStream(HEADER), deflated, trailer)))) {
+
+                @Override
+                public void close() throws IOException {
+
+                    try {
+                        super.close();
+                    }
+                    finally {
+
+                        // also if the stream is closed before the end (ending twice is harmless)
+                        deflater.end();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void writeTo(OutputStream outputStream) throws IOException {
+
+            GZIPOutputStream gzip = gzip(outputStream, 8192, level);
+
+            wrappedEntity.writeTo(gzip);
+
+            // the connection's stream is closed by the client
+            gzip.finish();
+        }
+    }
+}
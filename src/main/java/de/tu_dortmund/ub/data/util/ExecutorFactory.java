@@ -0,0 +1,107 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.util;
+
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.Method;
+import java.util.Properties;
+import java.util.concurrent.*;
+
+/**
+ * Utility Class for creating the executor which runs the tasks ('engine.executor')
+ *
+ * 'platform' (default): a pool of 'engine.threads' threads with a queue of the given size.
+ * 'virtual': one virtual thread per task. Virtual threads need a Java 21 runtime; they are looked up by reflection,
+ * so the project still builds for older targets. On older runtimes a warning is logged and the bounded pool of
+ * 'platform' is used instead, i.e. 'engine.threads' platform threads; no virtual threads are created.
+ * In both cases the number of tasks in flight is bounded by the caller.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-04
+ *
+ */
+public class ExecutorFactory {
+
+    /**
+     * wait for room in the queue instead of rejecting a task; the callers bound the number of tasks in flight, but a
+     * worker may still hold a finished task while the next one is submitted
+     */
+    public static final RejectedExecutionHandler BLOCK = new RejectedExecutionHandler() {
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Executor has been shut down.");
+            }
+
+            try {
+                executor.getQueue().put(r);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException(e);
+            }
+        }
+    };
+
+    private static ForkJoinPool conversionPool = null;
+
+    /**
+     * @return the pool shared by all parallel rdf conversions ('engine.convert.threads', default number of cores)
+     */
+    public static synchronized ForkJoinPool getConversionPool(Properties config) {
+
+        if (conversionPool == null) {
+
+            int parallelism = Integer.parseInt(config.getProperty("engine.convert.threads", "0"));
+
+            conversionPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        }
+
+        return conversionPool;
+    }
+
+    public static ExecutorService create(Properties config, Logger logger, int threads, int queue) {
+
+        if ("virtual".equals(config.getProperty("engine.executor"))) {
+
+            try {
+
+                Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+
+                return (ExecutorService) method.invoke(null);
+            }
+            catch (ReflectiveOperationException e) {
+
+                logger.warn("[" + config.getProperty("service.name") + "] " + "Virtual threads are not supported by Java " + System.getProperty("java.version") + " (Java 21 or newer required). Using a pool of " + threads + " platform threads.");
+                System.out.println("[" + config.getProperty("service.name") + "] " + "WARNING: Virtual threads are not supported by Java " + System.getProperty("java.version") + ". Using a pool of " + threads + " platform threads.");
+            }
+        }
+
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queue), BLOCK);
+    }
+}
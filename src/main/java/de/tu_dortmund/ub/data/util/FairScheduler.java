@@ -0,0 +1,180 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.util;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+
+/**
+ * Weighted fair queuing of the items of several queues (start-time fair queuing)
+ *
+ * Each item has a cost (e.g. the size of a file). When an item becomes the head of its queue, it starts at the
+ * virtual time or when the previous item of its queue finished, whichever is later; it finishes cost / weight later.
+ * {@link #next()} returns the head which starts first, and the virtual time advances to its start. While several
+ * queues have items, each one gets a share of the cost proportional to its weight, however many items the others
+ * hold. The iterator takes the items one by one, so items can be taken as workers become free.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-26
+ *
+ */
+public class FairScheduler<T> implements Iterable<T> {
+
+    private static class Queue<T> {
+
+        private final double weight;
+        private final ArrayDeque<T> items = new ArrayDeque<T>();
+        private final ArrayDeque<Long> costs = new ArrayDeque<Long>();
+
+        // virtual finish time of the last item taken
+        private double finish = 0.0;
+
+        private Queue(double weight) {
+
+            this.weight = weight;
+        }
+    }
+
+    private final LinkedHashMap<String, Queue<T>> queues = new LinkedHashMap<String, Queue<T>>();
+
+    private double virtualTime = 0.0;
+
+    /**
+     * @param name name of the queue
+     * @param weight share of the queue, greater than 0
+     */
+    public synchronized void addQueue(String name, double weight) {
+
+        if (weight <= 0.0) {
+            throw new IllegalArgumentException("Weight of queue '" + name + "' must be greater than 0.");
+        }
+
+        if (queues.containsKey(name)) {
+            throw new IllegalArgumentException("Queue '" + name + "' already exists.");
+        }
+
+        queues.put(name, new Queue<T>(weight));
+    }
+
+    /**
+     * @param name name of the queue
+     * @param item
+     * @param cost cost of the item, e.g. its size; at least 1 is counted
+     */
+    public synchronized void add(String name, T item, long cost) {
+
+        Queue<T> queue = queues.get(name);
+
+        if (queue == null) {
+            throw new IllegalArgumentException("Unknown queue '" + name + "'.");
+        }
+
+        queue.items.add(item);
+        queue.costs.add(Math.max(1L, cost));
+    }
+
+    /**
+     * @return the next item or null if all queues are empty
+     */
+    public synchronized T next() {
+
+        Queue<T> next = null;
+        double start = 0.0;
+
+        // on equal start times, the queue added first wins
+        for (Queue<T> queue : queues.values()) {
+
+            if (!queue.items.isEmpty()) {
+
+                double queueStart = Math.max(virtualTime, queue.finish);
+
+                if (next == null || queueStart < start) {
+
+                    next = queue;
+                    start = queueStart;
+                }
+            }
+        }
+
+        if (next == null) {
+            return null;
+        }
+
+        virtualTime = start;
+        next.finish = start + next.costs.poll() / next.weight;
+
+        return next.items.poll();
+    }
+
+    /**
+     * @return number of items in all queues
+     */
+    public synchronized int size() {
+
+        int size = 0;
+
+        for (Queue<T> queue : queues.values()) {
+            size += queue.items.size();
+        }
+
+        return size;
+    }
+
+    /**
+     * @return an iterator which takes the items in fair order
+     */
+    @Override
+    public Iterator<T> iterator() {
+
+        return new Iterator<T>() {
+
+            @Override
+            public boolean hasNext() {
+
+                return size() > 0;
+            }
+
+            @Override
+            public T next() {
+
+                T item = FairScheduler.this.next();
+
+                if (item == null) {
+                    throw new NoSuchElementException();
+                }
+
+                return item;
+            }
+
+            @Override
+            public void remove() {
+
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,306 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Thread-safe set of 64 or 128 bit fingerprints, stored off-heap
+ *
+ * The fingerprints are kept in open addressing hash tables (linear probing) in direct buffers, so millions of entries
+ * cost 8 or 16 bytes each (at a load of at most 3/4) and no objects on the heap. The set is split into segments with
+ * a lock each; a segment doubles its table when it is full. The fingerprint 0 is stored as 1.
+ *
+ * Short-lived sets (e.g. the statements of one task) start with few small segments on the heap instead, so they are
+ * collected like other objects and do not hold direct memory until the next GC.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-22
+ *
+ */
+public class FingerprintSet {
+
+    private static final int SEGMENT_BITS = 6;
+    // 2^26 slots of 16 bytes fill a direct buffer
+    private static final int MAX_SLOTS = 1 << 26;
+
+    private static class Segment {
+
+        private LongBuffer table;
+        private int slots;
+        private int size;
+    }
+
+    private final int width;
+    private final int segmentBits;
+    private final boolean direct;
+    private final Segment[] segments;
+
+    /**
+     * @param expected expected number of fingerprints (the tables grow beyond it)
+     * @param bits 64 or 128
+     */
+    public FingerprintSet(long expected, int bits) {
+
+        this(expected, bits, SEGMENT_BITS, true);
+    }
+
+    /**
+     * @param expected expected number of fingerprints (the tables grow beyond it)
+     * @param bits 64 or 128
+     * @param segmentBits 2^segmentBits segments (0 to 6)
+     * @param direct true: tables off-heap, false: on the heap
+     */
+    public FingerprintSet(long expected, int bits, int segmentBits, boolean direct) {
+
+        if (segmentBits < 0 || segmentBits > SEGMENT_BITS) {
+            throw new IllegalArgumentException("A fingerprint set has 2^0 to 2^" + SEGMENT_BITS + " segments, not 2^" + segmentBits + ".");
+        }
+
+        this.segmentBits = segmentBits;
+        this.direct = direct;
+        this.segments = new Segment[1 << segmentBits];
+
+        if (bits != 64 && bits != 128) {
+            throw new IllegalArgumentException("Fingerprints have 64 or 128 bits, not " + bits + ".");
+        }
+
+        this.width = bits / 64;
+
+        // power of two with room for the expected fingerprints at a load of 3/4
+        long perSegment = Math.max(16L, expected / segments.length * 4 / 3);
+        int slots = (int) Math.min(MAX_SLOTS, Long.highestOneBit(perSegment - 1) << 1);
+
+        for (int i = 0; i < segments.length; i++) {
+
+            segments[i] = new Segment();
+            segments[i].slots = slots;
+            segments[i].table = allocate(slots);
+        }
+    }
+
+    /**
+     * add a 64 bit fingerprint
+     *
+     * @return true if the fingerprint has not been in the set
+     */
+    public boolean add(long fingerprint) {
+
+        return add(fingerprint, 0L);
+    }
+
+    /**
+     * add a fingerprint; 'low' is ignored for 64 bit fingerprints
+     *
+     * @return true if the fingerprint has not been in the set
+     */
+    public boolean add(long high, long low) {
+
+        if (high == 0L) {
+            high = 1L;
+        }
+
+        if (width == 1) {
+            low = 0L;
+        }
+
+        Segment segment = segment(high);
+
+        synchronized (segment) {
+
+            if (!insert(segment.table, segment.slots, high, low)) {
+                return false;
+            }
+
+            segment.size++;
+
+            if (segment.size > segment.slots / 4 * 3) {
+                grow(segment);
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * @return true if the fingerprint is in the set; 'low' is ignored for 64 bit fingerprints
+     */
+    public boolean contains(long high, long low) {
+
+        if (high == 0L) {
+            high = 1L;
+        }
+
+        if (width == 1) {
+            low = 0L;
+        }
+
+        Segment segment = segment(high);
+
+        synchronized (segment) {
+
+            int mask = segment.slots - 1;
+
+            for (int slot = (int) high & mask; ; slot = (slot + 1) & mask) {
+
+                long value = segment.table.get(slot * width);
+
+                if (value == 0L) {
+                    return false;
+                }
+
+                if (value == high && (width == 1 || segment.table.get(slot * width + 1) == low)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * add all fingerprints of another set of the same width
+     */
+    public void addAll(FingerprintSet other) {
+
+        if (other.width != width) {
+            throw new IllegalArgumentException("Fingerprints have " + 64 * width + " bits, not " + 64 * other.width + ".");
+        }
+
+        for (Segment segment : other.segments) {
+
+            synchronized (segment) {
+
+                for (int slot = 0; slot < segment.slots; slot++) {
+
+                    long high = segment.table.get(slot * width);
+
+                    if (high != 0L) {
+                        add(high, width == 2 ? segment.table.get(slot * width + 1) : 0L);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of fingerprints in the set
+     */
+    public long size() {
+
+        long size = 0L;
+
+        for (Segment segment : segments) {
+
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * @return bytes allocated for the tables (off-heap if direct)
+     */
+    public long getMemory() {
+
+        long memory = 0L;
+
+        for (Segment segment : segments) {
+
+            synchronized (segment) {
+                memory += 8L * width * segment.slots;
+            }
+        }
+
+        return memory;
+    }
+
+    private Segment segment(long high) {
+
+        // a shift by 64 bits would be none
+        return segments[segmentBits == 0 ? 0 : (int) (high >>> (64 - segmentBits))];
+    }
+
+    private LongBuffer allocate(int slots) {
+
+        if (!direct) {
+            return LongBuffer.allocate(width * slots);
+        }
+
+        return ByteBuffer.allocateDirect(8 * width * slots).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    /**
+     * @return false if the fingerprint is already in the table
+     */
+    private boolean insert(LongBuffer table, int slots, long high, long low) {
+
+        int mask = slots - 1;
+
+        for (int slot = (int) high & mask; ; slot = (slot + 1) & mask) {
+
+            long value = table.get(slot * width);
+
+            if (value == 0L) {
+
+                table.put(slot * width, high);
+
+                if (width == 2) {
+                    table.put(slot * width + 1, low);
+                }
+
+                return true;
+            }
+
+            if (value == high && (width == 1 || table.get(slot * width + 1) == low)) {
+                return false;
+            }
+        }
+    }
+
+    private void grow(Segment segment) {
+
+        if (segment.slots >= MAX_SLOTS) {
+            throw new IllegalStateException("Fingerprint set is full (" + segment.size + " fingerprints in a segment).");
+        }
+
+        int slots = segment.slots * 2;
+        LongBuffer table = allocate(slots);
+
+        for (int slot = 0; slot < segment.slots; slot++) {
+
+            long high = segment.table.get(slot * width);
+
+            if (high != 0L) {
+                insert(table, slots, high, width == 2 ? segment.table.get(slot * width + 1) : 0L);
+            }
+        }
+
+        segment.table = table;
+        segment.slots = slots;
+    }
+}
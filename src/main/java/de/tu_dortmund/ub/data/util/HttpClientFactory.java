@@ -0,0 +1,129 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.util;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Utility Class for creating the pooled HTTP client shared by all tasks
+ *
+ * Pool sizes default to the value of 'engine.threads' and can be set with
+ * 'engine.http.maxTotal' and 'engine.http.maxPerRoute'. Connections are kept alive for
+ * 'engine.http.keepAlive' seconds if the server sends no Keep-Alive header and are evicted
+ * after 'engine.http.idleTimeout' seconds without use. If 'engine.http.maxInFlight' is set (default for
+ * 'engine.executor=virtual': 8, independent of 'engine.threads', which may be in the hundreds there), at most that many
+ * requests are sent to d:swarm at the same time.
+ * With 'engine.limiter=aimd' this limit adapts to the latency and error rate of d:swarm between 'engine.limiter.min'
+ * and 'engine.limiter.max' (see {@link AdaptiveLimit}). Idempotent requests are retried (see {@link LimitedHttpClient}).
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-04-24
+ *
+ */
+public class HttpClientFactory {
+
+    // requests in flight with 'engine.executor=virtual' if 'engine.http.maxInFlight' is not set
+    private static final int VIRTUAL_MAX_IN_FLIGHT = 8;
+
+    public static CloseableHttpClient create(Properties config) {
+
+        int threads = Integer.parseInt(config.getProperty("engine.threads", "1"));
+
+        String maxInFlight = config.getProperty("engine.http.maxInFlight");
+
+        // with virtual threads the tasks wait for a request slot instead of a pooled connection
+        if (maxInFlight == null && "virtual".equals(config.getProperty("engine.executor"))) {
+            maxInFlight = String.valueOf(VIRTUAL_MAX_IN_FLIGHT);
+        }
+
+        // adaptive limit of the requests in flight
+        boolean adaptive = "aimd".equals(config.getProperty("engine.limiter"));
+        int limiterMax = Integer.parseInt(config.getProperty("engine.limiter.max", String.valueOf(threads)));
+
+        int maxPerRoute = Integer.parseInt(config.getProperty("engine.http.maxPerRoute", adaptive ? String.valueOf(limiterMax) : maxInFlight != null ? maxInFlight : String.valueOf(threads)));
+        int maxTotal = Integer.parseInt(config.getProperty("engine.http.maxTotal", String.valueOf(2 * maxPerRoute)));
+        final long keepAlive = Long.parseLong(config.getProperty("engine.http.keepAlive", "30"));
+        long idleTimeout = Long.parseLong(config.getProperty("engine.http.idleTimeout", "60"));
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+
+        ConnectionKeepAliveStrategy keepAliveStrategy = new DefaultConnectionKeepAliveStrategy() {
+
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+
+                long duration = super.getKeepAliveDuration(response, context);
+
+                // no Keep-Alive header: use the configured default instead of 'forever'
+                return duration > 0 ? duration : keepAlive * 1000;
+            }
+        };
+
+        // retries after errors are done by LimitedHttpClient (with backoff); HttpClient only resends a request (also a
+        // POST) once if it could not be sent at all, e.g. on a stale pooled connection
+        CloseableHttpClient httpclient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeout, TimeUnit.SECONDS)
+                .setRetryHandler(new DefaultHttpRequestRetryHandler(1, false))
+                .build();
+
+        AdaptiveLimit limit;
+
+        if (adaptive) {
+
+            int limiterMin = Integer.parseInt(config.getProperty("engine.limiter.min", "1"));
+            int initial = Integer.parseInt(config.getProperty("engine.limiter.initial", maxInFlight != null ? maxInFlight : String.valueOf(Math.max(limiterMin, limiterMax / 2))));
+
+            limit = new AdaptiveLimit(initial, limiterMin, limiterMax,
+                    Double.parseDouble(config.getProperty("engine.limiter.backoffRatio", "0.9")),
+                    Long.parseLong(config.getProperty("engine.limiter.maxLatency", "0")),
+                    Double.parseDouble(config.getProperty("engine.limiter.tolerance", "2.0")));
+        }
+        else if (maxInFlight != null) {
+
+            limit = new AdaptiveLimit(Integer.parseInt(maxInFlight));
+        }
+        else {
+
+            limit = new AdaptiveLimit(Integer.MAX_VALUE);
+        }
+
+        return new LimitedHttpClient(httpclient, limit, config);
+    }
+}
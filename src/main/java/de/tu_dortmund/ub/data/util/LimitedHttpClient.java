@@ -0,0 +1,358 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.util;
+
+import org.apache.http.*;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.commons.io.output.ProxyOutputStream;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * HTTP client which limits the number of requests in flight and retries idempotent requests
+ *
+ * A permit is taken before a request is sent and given back when its response is closed, i.e. after the response
+ * entity has been read. So many tasks (e.g. on virtual threads) can wait for d:swarm without overloading it. The
+ * latency and status of each response adjust an {@link AdaptiveLimit}.
+ *
+ * Idempotent requests (GET, HEAD, PUT, DELETE, OPTIONS) with a repeatable entity are retried at most
+ * 'engine.http.retries' times on I/O errors, 5xx and 429, after an exponential backoff with jitter starting at
+ * 'engine.http.backoff' ms (or after the time given in a Retry-After header).
+ *
+ * The duration of each request (until the response headers arrive), errors, retries and the bytes sent and received
+ * are recorded in the {@link Metrics}.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-08
+ *
+ */
+public class LimitedHttpClient extends CloseableHttpClient {
+
+    private static final List<String> IDEMPOTENT = Arrays.asList("GET", "HEAD", "PUT", "DELETE", "OPTIONS");
+
+    private static Logger logger = Logger.getLogger(LimitedHttpClient.class.getName());
+
+    private final CloseableHttpClient httpclient;
+    private final AdaptiveLimit limit;
+
+    private final String serviceName;
+    private final int retries;
+    private final long backoff;
+    private final long maxBackoff;
+
+    public LimitedHttpClient(CloseableHttpClient httpclient, AdaptiveLimit limit, Properties config) {
+
+        this.httpclient = httpclient;
+        this.limit = limit;
+
+        this.serviceName = config.getProperty("service.name");
+        this.retries = Integer.parseInt(config.getProperty("engine.http.retries", "3"));
+        this.backoff = Long.parseLong(config.getProperty("engine.http.backoff", "500"));
+        this.maxBackoff = Long.parseLong(config.getProperty("engine.http.backoff.max", "30000"));
+    }
+
+    public AdaptiveLimit getLimit() {
+
+        return limit;
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException, ClientProtocolException {
+
+        String labels = "request=\"" + getOperation(request) + "\"";
+        Metrics.Timer timer = Metrics.timer("tpu_http_request_seconds", labels);
+
+        if (request instanceof HttpEntityEnclosingRequest && ((HttpEntityEnclosingRequest) request).getEntity() != null) {
+
+            HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest) request;
+            entityRequest.setEntity(countSent(entityRequest.getEntity()));
+        }
+
+        for (int attempt = 0; ; attempt++) {
+
+            try {
+                limit.acquire();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a free request slot.");
+            }
+
+            long start = System.nanoTime();
+
+            CloseableHttpResponse response;
+
+            try {
+
+                response = httpclient.execute(target, request, context);
+            }
+            catch (IOException | RuntimeException e) {
+
+                timer.stop(start);
+                Metrics.counter("tpu_http_errors_total", labels).increment();
+
+                limit.onSample((System.nanoTime() - start) / 1000000, e instanceof IOException);
+                limit.release();
+
+                if (e instanceof IOException && isRetryable(request, attempt)) {
+
+                    Metrics.counter("tpu_http_retries_total", labels).increment();
+
+                    logger.warn("[" + serviceName + "] " + request.getRequestLine() + " failed with a " + e.getClass().getSimpleName() + ". Retrying ...");
+                    sleep(attempt, -1);
+                    continue;
+                }
+
+                throw e;
+            }
+
+            timer.stop(start);
+
+            int statusCode = response.getStatusLine().getStatusCode();
+            boolean overloaded = statusCode >= 500 || statusCode == 429;
+
+            if (statusCode >= 400) {
+                Metrics.counter("tpu_http_errors_total", labels).increment();
+            }
+
+            limit.onSample((System.nanoTime() - start) / 1000000, overloaded);
+
+            if (overloaded && isRetryable(request, attempt)) {
+
+                Metrics.counter("tpu_http_retries_total", labels).increment();
+
+                logger.warn("[" + serviceName + "] " + request.getRequestLine() + " : " + statusCode + ". Retrying ...");
+
+                long retryAfter = getRetryAfter(response);
+
+                try {
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    response.close();
+                }
+                finally {
+                    limit.release();
+                }
+
+                sleep(attempt, retryAfter);
+                continue;
+            }
+
+            if (response.getEntity() != null) {
+                response.setEntity(countReceived(response.getEntity()));
+            }
+
+            return releaseOnClose(response);
+        }
+    }
+
+    /**
+     * @return method and last path segment which is not an id, e.g. 'PUT resources' or 'POST data'
+     */
+    static String getOperation(HttpRequest request) {
+
+        String path = request.getRequestLine().getUri();
+
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+
+        String[] segments = path.split("/");
+
+        for (int i = segments.length - 1; i >= 0; i--) {
+
+            // ids (uuids, 'DataModel-...') contain digits
+            if (!segments[i].isEmpty() && !segments[i].matches(".*[0-9].*")) {
+                return request.getRequestLine().getMethod() + " " + segments[i];
+            }
+        }
+
+        return request.getRequestLine().getMethod();
+    }
+
+    private HttpEntity countSent(HttpEntity entity) {
+
+        final Metrics.Counter counter = Metrics.counter("tpu_http_sent_bytes_total");
+
+        return new HttpEntityWrapper(entity) {
+
+            @Override
+            public void writeTo(OutputStream outstream) throws IOException {
+
+                super.writeTo(new ProxyOutputStream(outstream) {
+
+                    @Override
+                    protected void afterWrite(int n) {
+                        counter.add(n);
+                    }
+                });
+            }
+        };
+    }
+
+    private HttpEntity countReceived(HttpEntity entity) {
+
+        final Metrics.Counter counter = Metrics.counter("tpu_http_received_bytes_total");
+
+        return new HttpEntityWrapper(entity) {
+
+            @Override
+            public InputStream getContent() throws IOException {
+
+                return new ProxyInputStream(super.getContent()) {
+
+                    @Override
+                    protected void afterRead(int n) {
+
+                        if (n > 0) {
+                            counter.add(n);
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    private boolean isRetryable(HttpRequest request, int attempt) {
+
+        if (attempt >= retries || !IDEMPOTENT.contains(request.getRequestLine().getMethod())) {
+            return false;
+        }
+
+        if (request instanceof HttpEntityEnclosingRequest) {
+
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+
+            return entity == null || entity.isRepeatable();
+        }
+
+        return true;
+    }
+
+    /**
+     * @return delay in ms from the Retry-After header (seconds) or -1
+     */
+    private long getRetryAfter(HttpResponse response) {
+
+        Header header = response.getFirstHeader("Retry-After");
+
+        if (header != null) {
+
+            try {
+                return Math.min(maxBackoff, Long.parseLong(header.getValue().trim()) * 1000);
+            }
+            catch (NumberFormatException e) {
+                // HTTP date: use the backoff
+            }
+        }
+
+        return -1;
+    }
+
+    private void sleep(int attempt, long retryAfter) throws InterruptedIOException {
+
+        // full jitter
+        long delay = retryAfter >= 0 ? retryAfter : ThreadLocalRandom.current().nextLong(Math.min(maxBackoff, backoff << Math.min(attempt, 20)) + 1);
+
+        try {
+            Thread.sleep(delay);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a retry.");
+        }
+    }
+
+    /**
+     * @return the response; closing it gives back the permit (once)
+     */
+    private CloseableHttpResponse releaseOnClose(final CloseableHttpResponse response) {
+
+        final AtomicBoolean released = new AtomicBoolean(false);
+
+        return (CloseableHttpResponse) Proxy.newProxyInstance(CloseableHttpResponse.class.getClassLoader(), new Class<?>[] { CloseableHttpResponse.class }, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+                try {
+
+                    return method.invoke(response, args);
+                }
+                catch (InvocationTargetException e) {
+
+                    throw e.getCause();
+                }
+                finally {
+
+                    if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                        limit.release();
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        httpclient.close();
+    }
+
+    @Override
+    @Deprecated
+    @SuppressWarnings("deprecation")
+    public org.apache.http.params.HttpParams getParams() {
+
+        return httpclient.getParams();
+    }
+
+    @Override
+    @Deprecated
+    @SuppressWarnings("deprecation")
+    public org.apache.http.conn.ClientConnectionManager getConnectionManager() {
+
+        return httpclient.getConnectionManager();
+    }
+}
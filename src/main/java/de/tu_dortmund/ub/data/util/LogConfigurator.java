@@ -0,0 +1,101 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.util;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.AsyncAppender;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PropertyConfigurator;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Utility Class for configuring log4j once per process
+ *
+ * Reads 'service.log4j-conf'. With 'service.log4j-async=true' the appenders of the root logger and of the 'payload'
+ * logger (see {@link PayloadLogger}) are moved behind an {@link AsyncAppender} with a buffer of
+ * 'service.log4j-async.bufferSize' events (default 512). If 'service.log4j-async.blocking' is false (default true),
+ * events are discarded while the buffer is full instead of blocking the workers. The location of the caller (%F:%L,
+ * %M, %C in the layouts) costs a stack trace per event on the worker and is only passed on with
+ * 'service.log4j-async.locationInfo=true' (default false); otherwise those fields print as '?'.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-12
+ *
+ */
+public class LogConfigurator {
+
+    public static void configure(Properties config) {
+
+        PropertyConfigurator.configure(config.getProperty("service.log4j-conf"));
+
+        if (Boolean.parseBoolean(config.getProperty("service.log4j-async"))) {
+
+            int bufferSize = Integer.parseInt(config.getProperty("service.log4j-async.bufferSize", "512"));
+            boolean blocking = Boolean.parseBoolean(config.getProperty("service.log4j-async.blocking", "true"));
+            boolean locationInfo = Boolean.parseBoolean(config.getProperty("service.log4j-async.locationInfo", "false"));
+
+            async(Logger.getRootLogger(), bufferSize, blocking, locationInfo);
+            async(Logger.getLogger(PayloadLogger.NAME), bufferSize, blocking, locationInfo);
+        }
+
+        PayloadLogger.configure(config);
+    }
+
+    private static void async(Logger logger, int bufferSize, boolean blocking, boolean locationInfo) {
+
+        List<Appender> appenders = new ArrayList<Appender>();
+
+        Enumeration<?> enumeration = logger.getAllAppenders();
+
+        while (enumeration.hasMoreElements()) {
+            appenders.add((Appender) enumeration.nextElement());
+        }
+
+        if (appenders.isEmpty()) {
+            return;
+        }
+
+        AsyncAppender asyncAppender = new AsyncAppender();
+        asyncAppender.setName("async-" + (logger.getName() != null ? logger.getName() : "root"));
+        asyncAppender.setBufferSize(bufferSize);
+        asyncAppender.setBlocking(blocking);
+
+        // %F:%L in the layouts needs the location of the caller, taken from a stack trace on the logging thread
+        asyncAppender.setLocationInfo(locationInfo);
+
+        for (Appender appender : appenders) {
+
+            logger.removeAppender(appender);
+            asyncAppender.addAppender(appender);
+        }
+
+        asyncAppender.activateOptions();
+        logger.addAppender(asyncAppender);
+    }
+}
@@ -0,0 +1,284 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.util;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Registry of the metrics of a run
+ *
+ * Timers (with a histogram of the durations) and counters are identified by a name and optional labels in Prometheus
+ * syntax, e.g. <code>timer("tpu_stage_seconds", "stage=\"upload\"")</code>. Every metric is registered as MBean
+ * 'de.tu_dortmund.ub.data:type=Timer|Counter,name=...'. See {@link MetricsExporter} for the export.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-11
+ *
+ */
+public class Metrics {
+
+    // upper bounds of the histogram buckets in seconds
+    static final double[] BUCKETS = { 0.01, 0.05, 0.1, 0.5, 1, 5, 10, 30, 60, 300, 900 };
+
+    private static final ConcurrentSkipListMap<String, Timer> timers = new ConcurrentSkipListMap<String, Timer>();
+    private static final ConcurrentSkipListMap<String, Counter> counters = new ConcurrentSkipListMap<String, Counter>();
+
+    public interface TimerMBean {
+
+        long getCount();
+
+        double getTotalSeconds();
+
+        double getMeanMillis();
+
+        double getMaxMillis();
+    }
+
+    public interface CounterMBean {
+
+        long getCount();
+    }
+
+    public static class Timer implements TimerMBean {
+
+        private final String name;
+        private final String labels;
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS.length);
+
+        private Timer(String name, String labels) {
+
+            this.name = name;
+            this.labels = labels;
+        }
+
+        /**
+         * record the time since <code>start</code>
+         *
+         * @param start value of {@link System#nanoTime()} at the start
+         */
+        public void stop(long start) {
+
+            update(System.nanoTime() - start);
+        }
+
+        public void update(long nanos) {
+
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+                // retry
+            }
+
+            double seconds = nanos / 1e9;
+
+            for (int i = 0; i < BUCKETS.length; i++) {
+
+                if (seconds <= BUCKETS[i]) {
+
+                    buckets.incrementAndGet(i);
+                    break;
+                }
+            }
+        }
+
+        public String getName() {
+
+            return name;
+        }
+
+        public String getLabels() {
+
+            return labels;
+        }
+
+        @Override
+        public long getCount() {
+
+            return count.get();
+        }
+
+        @Override
+        public double getTotalSeconds() {
+
+            return totalNanos.get() / 1e9;
+        }
+
+        @Override
+        public double getMeanMillis() {
+
+            long n = count.get();
+
+            return n > 0 ? totalNanos.get() / 1e6 / n : 0;
+        }
+
+        @Override
+        public double getMaxMillis() {
+
+            return maxNanos.get() / 1e6;
+        }
+
+        /**
+         * @return number of durations of at most BUCKETS[i] seconds (not cumulative)
+         */
+        public long getBucket(int i) {
+
+            return buckets.get(i);
+        }
+    }
+
+    public static class Counter implements CounterMBean {
+
+        private final String name;
+        private final String labels;
+
+        private final AtomicLong count = new AtomicLong();
+
+        private Counter(String name, String labels) {
+
+            this.name = name;
+            this.labels = labels;
+        }
+
+        public void increment() {
+
+            count.incrementAndGet();
+        }
+
+        public void add(long n) {
+
+            count.addAndGet(n);
+        }
+
+        public String getName() {
+
+            return name;
+        }
+
+        public String getLabels() {
+
+            return labels;
+        }
+
+        @Override
+        public long getCount() {
+
+            return count.get();
+        }
+    }
+
+    public static Timer timer(String name, String labels) {
+
+        String key = key(name, labels);
+
+        Timer timer = timers.get(key);
+
+        if (timer == null) {
+
+            Timer created = new Timer(name, labels);
+            timer = timers.putIfAbsent(key, created);
+
+            if (timer == null) {
+
+                timer = created;
+                register("Timer", key, created, TimerMBean.class);
+            }
+        }
+
+        return timer;
+    }
+
+    public static Timer timer(String name) {
+
+        return timer(name, null);
+    }
+
+    public static Counter counter(String name, String labels) {
+
+        String key = key(name, labels);
+
+        Counter counter = counters.get(key);
+
+        if (counter == null) {
+
+            Counter created = new Counter(name, labels);
+            counter = counters.putIfAbsent(key, created);
+
+            if (counter == null) {
+
+                counter = created;
+                register("Counter", key, created, CounterMBean.class);
+            }
+        }
+
+        return counter;
+    }
+
+    public static Counter counter(String name) {
+
+        return counter(name, null);
+    }
+
+    public static Map<String, Timer> getTimers() {
+
+        return timers;
+    }
+
+    public static Map<String, Counter> getCounters() {
+
+        return counters;
+    }
+
+    private static String key(String name, String labels) {
+
+        return labels == null ? name : name + "{" + labels + "}";
+    }
+
+    private static <T> void register(String type, String key, T metric, Class<T> mbeanInterface) {
+
+        try {
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+            server.registerMBean(new StandardMBean(metric, mbeanInterface), new ObjectName("de.tu_dortmund.ub.data:type=" + type + ",name=" + ObjectName.quote(key)));
+        }
+        catch (Exception e) {
+
+            // the metric is still exported by MetricsExporter
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export of the {@link Metrics} in the Prometheus text format
+ *
+ * <ul>
+ *     <li>'engine.metrics.file': written every 'engine.metrics.interval' seconds (default 10) and at the end of the run
+ *     (e.g. for the textfile collector of the node exporter)</li>
+ *     <li>'engine.metrics.port': served at http://'engine.metrics.host' (default localhost):port/metrics</li>
+ * </ul>
+ *
+ * A summary table is logged by {@link #stop()}.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-11
+ *
+ */
+public class MetricsExporter {
+
+    private Properties config = null;
+    private Logger logger = null;
+
+    private HttpServer server;
+    private ScheduledExecutorService scheduler;
+
+    public MetricsExporter(Properties config, Logger logger) {
+
+        this.config = config;
+        this.logger = logger;
+    }
+
+    public void start() throws IOException {
+
+        if (config.getProperty("engine.metrics.port") != null) {
+
+            InetSocketAddress address = new InetSocketAddress(config.getProperty("engine.metrics.host", "localhost"), Integer.parseInt(config.getProperty("engine.metrics.port")));
+
+            server = HttpServer.create(address, 0);
+            server.createContext("/metrics", new HttpHandler() {
+
+                @Override
+                public void handle(HttpExchange exchange) throws IOException {
+
+                    byte[] body = toPrometheus().getBytes("UTF-8");
+
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                    exchange.sendResponseHeaders(200, body.length);
+
+                    OutputStream out = exchange.getResponseBody();
+
+                    try {
+                        out.write(body);
+                    }
+                    finally {
+                        out.close();
+                    }
+                }
+            });
+            server.start();
+
+            logger.info("[" + config.getProperty("service.name") + "] " + "Metrics at http://" + address.getHostName() + ":" + address.getPort() + "/metrics");
+        }
+
+        if (config.getProperty("engine.metrics.file") != null) {
+
+            long interval = Long.parseLong(config.getProperty("engine.metrics.interval", "10"));
+
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+
+                    Thread thread = new Thread(runnable, "metrics");
+                    thread.setDaemon(true);
+
+                    return thread;
+                }
+            });
+
+            scheduler.scheduleWithFixedDelay(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    write();
+                }
+            }, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * write the metrics a last time, stop the endpoint and log the summary
+     */
+    public void stop() {
+
+        if (scheduler != null) {
+
+            scheduler.shutdownNow();
+            write();
+        }
+
+        if (server != null) {
+            server.stop(0);
+        }
+
+        String summary = summary();
+
+        logger.info("[" + config.getProperty("service.name") + "] " + "Metrics:\n" + summary);
+        System.out.println("[" + config.getProperty("service.name") + "] " + "Metrics:");
+        System.out.println(summary);
+    }
+
+    private void write() {
+
+        File file = new File(config.getProperty("engine.metrics.file"));
+        File tmp = new File(file.getPath() + ".tmp");
+
+        try {
+
+            // rename, so that a reader never sees a partial file
+            FileUtils.writeStringToFile(tmp, toPrometheus(), "UTF-8");
+
+            if (!tmp.renameTo(file)) {
+
+                file.delete();
+                tmp.renameTo(file);
+            }
+        }
+        catch (IOException e) {
+
+            logger.error("[" + config.getProperty("service.name") + "] Writing metrics to '" + file + "' failed with a " + e.getClass().getSimpleName());
+        }
+    }
+
+    public static String toPrometheus() {
+
+        StringBuilder text = new StringBuilder();
+        Set<String> types = new HashSet<String>();
+
+        for (Metrics.Timer timer : Metrics.getTimers().values()) {
+
+            String name = timer.getName();
+            String labels = timer.getLabels() != null ? timer.getLabels() + "," : "";
+
+            if (types.add(name)) {
+                text.append("# TYPE ").append(name).append(" histogram\n");
+            }
+
+            long cumulative = 0;
+
+            for (int i = 0; i < Metrics.BUCKETS.length; i++) {
+
+                cumulative += timer.getBucket(i);
+                text.append(name).append("_bucket{").append(labels).append("le=\"").append(Metrics.BUCKETS[i]).append("\"} ").append(cumulative).append('\n');
+            }
+
+            text.append(name).append("_bucket{").append(labels).append("le=\"+Inf\"} ").append(timer.getCount()).append('\n');
+            text.append(name).append("_sum").append(braces(timer.getLabels())).append(' ').append(String.format(Locale.ENGLISH, "%.6f", timer.getTotalSeconds())).append('\n');
+            text.append(name).append("_count").append(braces(timer.getLabels())).append(' ').append(timer.getCount()).append('\n');
+        }
+
+        for (Metrics.Counter counter : Metrics.getCounters().values()) {
+
+            String name = counter.getName();
+
+            if (types.add(name)) {
+                text.append("# TYPE ").append(name).append(" counter\n");
+            }
+
+            text.append(name).append(braces(counter.getLabels())).append(' ').append(counter.getCount()).append('\n');
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * @return table of all timers and counters
+     */
+    public static String summary() {
+
+        StringBuilder table = new StringBuilder();
+
+        table.append(String.format(Locale.ENGLISH, "%-60s %10s %12s %12s %12s%n", "timer", "count", "total s", "mean ms", "max ms"));
+
+        for (Metrics.Timer timer : Metrics.getTimers().values()) {
+
+            table.append(String.format(Locale.ENGLISH, "%-60s %10d %12.1f %12.1f %12.1f%n", timer.getName() + braces(timer.getLabels()), timer.getCount(), timer.getTotalSeconds(), timer.getMeanMillis(), timer.getMaxMillis()));
+        }
+
+        table.append(String.format(Locale.ENGLISH, "%n%-60s %10s%n", "counter", "value"));
+
+        for (Metrics.Counter counter : Metrics.getCounters().values()) {
+
+            table.append(String.format(Locale.ENGLISH, "%-60s %10d%n", counter.getName() + braces(counter.getLabels()), counter.getCount()));
+        }
+
+        return table.toString();
+    }
+
+    private static String braces(String labels) {
+
+        return labels != null ? "{" + labels + "}" : "";
+    }
+}
@@ -0,0 +1,88 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.util;
+
+import org.apache.log4j.Logger;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logger for request and response payloads (JSON of tasks, data models, responses)
+ *
+ * Payloads are logged at DEBUG to the logger 'payload', i.e. only with 'log4j.logger.payload=DEBUG'. Only every
+ * 'logging.payload.sample'-th payload is logged (default 1: all) and payloads are cut after
+ * 'logging.payload.maxLength' characters (default 2000; 0: no limit).
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-12
+ *
+ */
+public class PayloadLogger {
+
+    public static final String NAME = "payload";
+
+    private static Logger logger = Logger.getLogger(NAME);
+
+    private static volatile String serviceName = null;
+    private static volatile int maxLength = 2000;
+    private static volatile long sample = 1;
+
+    private static final AtomicLong counter = new AtomicLong();
+
+    public static void configure(Properties config) {
+
+        serviceName = config.getProperty("service.name");
+        maxLength = Integer.parseInt(config.getProperty("logging.payload.maxLength", "2000"));
+        sample = Math.max(1, Long.parseLong(config.getProperty("logging.payload.sample", "1")));
+    }
+
+    public static boolean isEnabled() {
+
+        return logger.isDebugEnabled();
+    }
+
+    /**
+     * @param label e.g. 'task'
+     * @param payload
+     */
+    public static void log(String label, String payload) {
+
+        if (!logger.isDebugEnabled() || counter.getAndIncrement() % sample != 0) {
+            return;
+        }
+
+        logger.debug("[" + serviceName + "] " + label + " : " + truncate(payload, maxLength));
+    }
+
+    static String truncate(String payload, int maxLength) {
+
+        if (payload == null || maxLength <= 0 || payload.length() <= maxLength) {
+            return payload;
+        }
+
+        return payload.substring(0, maxLength) + "... (" + payload.length() + " chars)";
+    }
+}
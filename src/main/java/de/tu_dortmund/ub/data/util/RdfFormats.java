@@ -0,0 +1,113 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.util;
+
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.Rio;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Utility Class for the rdf formats of the results
+ *
+ * The names of 'results.rdf.format' are also the extensions of the result files
+ * ('<dataModelID>.<file name>.rdf.<name>', optionally followed by '.gz'). Further formats (e.g. a dictionary encoded
+ * format like HDT, once a Rio writer is available) only need a name here.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-20
+ *
+ */
+public class RdfFormats {
+
+    private static final LinkedHashMap<String, RDFFormat> FORMATS = new LinkedHashMap<String, RDFFormat>();
+
+    static {
+
+        FORMATS.put("xml", RDFFormat.RDFXML);
+        FORMATS.put("ttl", RDFFormat.TURTLE);
+        FORMATS.put("turtle", RDFFormat.TURTLE);
+        FORMATS.put("nquads", RDFFormat.NQUADS);
+        FORMATS.put("ntriples", RDFFormat.NTRIPLES);
+        FORMATS.put("jsonld", RDFFormat.JSONLD);
+        FORMATS.put("binary", RDFFormat.BINARY);
+    }
+
+    /**
+     * @return the format of a value of 'results.rdf.format' or null if the name is unknown
+     */
+    public static RDFFormat forName(String name) {
+
+        return name != null ? FORMATS.get(name.trim().toLowerCase()) : null;
+    }
+
+    /**
+     * @return the supported names of 'results.rdf.format'
+     */
+    public static String names() {
+
+        return FORMATS.keySet().toString();
+    }
+
+    /**
+     * detect the format of a file by its extension: the names of 'results.rdf.format' and the extensions registered
+     * with Rio (e.g. .rdf, .nq, .brf); a trailing '.gz' is ignored
+     *
+     * @return the format or null if the extension is unknown
+     */
+    public static RDFFormat forFile(File file) {
+
+        String name = file.getName().toLowerCase();
+
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+
+        RDFFormat format = forName(name.substring(name.lastIndexOf('.') + 1));
+
+        if (format == null) {
+            format = Rio.getParserFormatForFileName(name);
+        }
+
+        return format;
+    }
+
+    /**
+     * @return the name of the given format for 'results.rdf.format' or null
+     */
+    public static String nameOf(RDFFormat format) {
+
+        for (Map.Entry<String, RDFFormat> entry : FORMATS.entrySet()) {
+
+            if (entry.getValue().equals(format)) {
+                return entry.getKey();
+            }
+        }
+
+        return null;
+    }
+}
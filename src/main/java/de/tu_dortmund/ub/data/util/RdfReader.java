@@ -0,0 +1,139 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.util;
+
+import org.openrdf.rio.*;
+import org.openrdf.rio.helpers.RDFHandlerWrapper;
+
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Utility Class for reading result files
+ *
+ * The format is detected by {@link RdfFormats#forFile(File)}; files ending with '.gz' are decompressed. As a command
+ * line tool it converts result files, e.g. binary results for loaders which cannot read them:
+ *
+ * <pre>
+ *     java -cp TaskProcessingUnit-1.0-SNAPSHOT-onejar.jar de.tu_dortmund.ub.data.util.RdfReader -format=nquads file...
+ * </pre>
+ *
+ * The statements are written to stdout ('-format', default nquads), the number of statements per file to stderr.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-20
+ *
+ */
+public class RdfReader {
+
+    /**
+     * parse the file; startRDF() and endRDF() are called on the handler
+     *
+     * @return number of statements
+     * @throws IOException if the format of the file is unknown or it cannot be read
+     */
+    public static long read(File file, RDFHandler handler) throws IOException, RDFParseException, RDFHandlerException {
+
+        RDFFormat format = RdfFormats.forFile(file);
+
+        if (format == null) {
+            throw new IOException("Unknown rdf format of '" + file + "'.");
+        }
+
+        final long[] statements = { 0L };
+
+        RDFParser parser = Rio.createParser(format);
+        parser.setRDFHandler(new RDFHandlerWrapper(handler) {
+
+            @Override
+            public void handleStatement(org.openrdf.model.Statement statement) throws RDFHandlerException {
+
+                super.handleStatement(statement);
+                statements[0]++;
+            }
+        });
+
+        InputStream in = new BufferedInputStream(new FileInputStream(file), 65536);
+
+        try {
+
+            if (file.getName().toLowerCase().endsWith(".gz")) {
+                in = new GZIPInputStream(in, 65536);
+            }
+
+            parser.parse(in, file.toURI().toString());
+        }
+        finally {
+            in.close();
+        }
+
+        return statements[0];
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        RDFFormat format = RDFFormat.NQUADS;
+        boolean read = false;
+
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 65536);
+
+        try {
+
+            for (String arg : args) {
+
+                if (arg.startsWith("-format=")) {
+
+                    format = RdfFormats.forName(arg.substring(arg.indexOf('=') + 1));
+
+                    if (format == null) {
+
+                        System.err.println("Unknown format '" + arg.substring(arg.indexOf('=') + 1) + "'. Supported formats: " + RdfFormats.names());
+                        System.exit(1);
+                    }
+                }
+                else {
+
+                    // one document per file
+                    RDFWriter writer = Rio.createWriter(format, out);
+
+                    long statements = read(new File(arg), writer);
+
+                    System.err.println(arg + "\t" + statements);
+
+                    read = true;
+                }
+            }
+        }
+        finally {
+            out.flush();
+        }
+
+        if (!read) {
+
+            System.err.println("Usage: RdfReader [-format=nquads] file...");
+            System.exit(1);
+        }
+    }
+}
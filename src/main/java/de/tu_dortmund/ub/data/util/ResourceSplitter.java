@@ -0,0 +1,329 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.util;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import javax.xml.stream.*;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Utility Class for splitting large resources into chunks of records
+ *
+ * A file larger than 'splitter.threshold' bytes is split into chunks of at most 'splitter.records' records or about
+ * 'splitter.bytes' bytes (whichever is reached first), written to 'splitter.folder'. The chunks of a file are written
+ * to a subfolder of its own, named after the file and a hash of its absolute path, so files with the same name in
+ * other watch folders (e.g. of other jobs) do not overwrite each other's chunks.
+ * <ul>
+ *     <li>XML: each chunk contains the root element of the file and the elements named 'splitter.xml.record'. Other
+ *     content and namespaces declared between the root and the record elements are not copied.</li>
+ *     <li>CSV (.csv, .tsv): each chunk starts with the header line ('splitter.csv.header', default true); quoted line
+ *     breaks are kept within their record.</li>
+ * </ul>
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-05-06
+ *
+ */
+public class ResourceSplitter {
+
+    private long threshold;
+    private long maxRecords;
+    private long maxBytes;
+    private String recordElement;
+    private boolean header;
+    private File folder;
+
+    public ResourceSplitter(Properties config) {
+
+        this.threshold = Long.parseLong(config.getProperty("splitter.threshold", "0"));
+        this.maxRecords = Long.parseLong(config.getProperty("splitter.records", "10000"));
+        this.maxBytes = Long.parseLong(config.getProperty("splitter.bytes", String.valueOf(Long.MAX_VALUE)));
+        this.recordElement = config.getProperty("splitter.xml.record");
+        this.header = Boolean.parseBoolean(config.getProperty("splitter.csv.header", "true"));
+        this.folder = new File(config.getProperty("splitter.folder", config.getProperty("preprocessing.folder", System.getProperty("java.io.tmpdir"))));
+    }
+
+    /**
+     * @return true if the file exceeds 'splitter.threshold' and has a format which can be split
+     */
+    public boolean accepts(File file) {
+
+        if (threshold <= 0 || file.length() <= threshold) {
+            return false;
+        }
+
+        String extension = FilenameUtils.getExtension(file.getName()).toLowerCase();
+
+        return ("xml".equals(extension) && recordElement != null) || "csv".equals(extension) || "tsv".equals(extension);
+    }
+
+    /**
+     * split the file into chunks
+     *
+     * @param file
+     * @return the chunks; empty if the file contains no records
+     * @throws IOException
+     */
+    public List<File> split(File file) throws IOException {
+
+        String extension = FilenameUtils.getExtension(file.getName()).toLowerCase();
+
+        if ("xml".equals(extension)) {
+
+            try {
+                return splitXml(file);
+            }
+            catch (XMLStreamException e) {
+                throw new IOException("Splitting '" + file + "' failed: " + e.getMessage(), e);
+            }
+        }
+
+        return splitCsv(file);
+    }
+
+    private File chunk(File file, int part) throws IOException {
+
+        File subfolder = new File(folder, FilenameUtils.getBaseName(file.getName()) + "-" + hash(file.getAbsolutePath()));
+
+        if (!subfolder.isDirectory() && !subfolder.mkdirs() && !subfolder.isDirectory()) {
+            throw new IOException("Creating '" + subfolder + "' failed.");
+        }
+
+        return new File(subfolder, FilenameUtils.getBaseName(file.getName()) + String.format(".part%04d.", part) + FilenameUtils.getExtension(file.getName()));
+    }
+
+    private static String hash(String value) throws UnsupportedEncodingException {
+
+        try {
+
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes("UTF-8"));
+
+            StringBuilder hex = new StringBuilder();
+
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+
+            return hex.toString();
+        }
+        catch (NoSuchAlgorithmException e) {
+
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<File> splitXml(File file) throws IOException, XMLStreamException {
+
+        ArrayList<File> chunks = new ArrayList<File>();
+
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+        XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(file));
+
+        CountingOutputStream out = null;
+        XMLEventWriter writer = null;
+
+        try {
+
+            XMLEventReader reader = inputFactory.createXMLEventReader(inputStream);
+
+            StartElement root = null;
+            int depth = 0;
+            int recordDepth = -1;
+            long records = 0;
+
+            while (reader.hasNext()) {
+
+                XMLEvent event = reader.nextEvent();
+
+                if (event.isStartElement()) {
+
+                    depth++;
+
+                    if (depth == 1) {
+
+                        root = event.asStartElement();
+                        continue;
+                    }
+
+                    if (recordDepth < 0 && recordElement.equals(event.asStartElement().getName().getLocalPart())) {
+
+                        recordDepth = depth;
+
+                        if (writer == null) {
+
+                            // start a new chunk
+                            File chunk = chunk(file, chunks.size() + 1);
+                            chunks.add(chunk);
+
+                            out = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(chunk)));
+                            writer = outputFactory.createXMLEventWriter(out, "UTF-8");
+                            writer.add(eventFactory.createStartDocument("UTF-8", "1.0"));
+                            writer.add(root);
+                        }
+                    }
+                }
+
+                if (recordDepth > 0) {
+                    writer.add(event);
+                }
+
+                if (event.isEndElement()) {
+
+                    if (depth == recordDepth) {
+
+                        recordDepth = -1;
+                        records++;
+
+                        writer.flush();
+
+                        if (records >= maxRecords || out.getByteCount() >= maxBytes) {
+
+                            closeXmlChunk(writer, eventFactory, root, out);
+                            writer = null;
+                            records = 0;
+                        }
+                    }
+
+                    depth--;
+                }
+            }
+
+            reader.close();
+
+            if (writer != null) {
+
+                closeXmlChunk(writer, eventFactory, root, out);
+                writer = null;
+            }
+        }
+        finally {
+
+            inputStream.close();
+
+            if (out != null) {
+                out.close();
+            }
+        }
+
+        return chunks;
+    }
+
+    private void closeXmlChunk(XMLEventWriter writer, XMLEventFactory eventFactory, StartElement root, OutputStream out) throws XMLStreamException, IOException {
+
+        writer.add(eventFactory.createEndElement(root.getName(), null));
+        writer.add(eventFactory.createEndDocument());
+        writer.close();
+        out.close();
+    }
+
+    private List<File> splitCsv(File file) throws IOException {
+
+        ArrayList<File> chunks = new ArrayList<File>();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+
+        CountingOutputStream out = null;
+        Writer writer = null;
+
+        try {
+
+            String headerLine = header ? reader.readLine() : null;
+
+            StringBuilder record = new StringBuilder();
+            long records = 0;
+            boolean quoted = false;
+
+            String next;
+
+            for (String line = reader.readLine(); line != null; line = next) {
+
+                next = reader.readLine();
+
+                record.append(line).append('\n');
+
+                // a record ends at a line break outside of quotes
+                for (int i = 0; i < line.length(); i++) {
+                    if (line.charAt(i) == '"') {
+                        quoted = !quoted;
+                    }
+                }
+
+                // unbalanced quotes at the end of the file: the rest is one record
+                if (quoted && next != null) {
+                    continue;
+                }
+
+                if (writer == null) {
+
+                    File chunk = chunk(file, chunks.size() + 1);
+                    chunks.add(chunk);
+
+                    out = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(chunk)));
+                    writer = new OutputStreamWriter(out, "UTF-8");
+
+                    if (headerLine != null) {
+                        writer.write(headerLine);
+                        writer.write('\n');
+                    }
+                }
+
+                writer.write(record.toString());
+                record.setLength(0);
+                records++;
+
+                writer.flush();
+
+                if (records >= maxRecords || out.getByteCount() >= maxBytes) {
+
+                    writer.close();
+                    writer = null;
+                    records = 0;
+                }
+            }
+        }
+        finally {
+
+            reader.close();
+
+            if (writer != null) {
+                writer.close();
+            }
+        }
+
+        return chunks;
+    }
+}
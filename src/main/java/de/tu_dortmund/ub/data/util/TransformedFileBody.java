@@ -0,0 +1,93 @@
+/*
+The MIT License (MIT)
+
+Copyright (c) 2015, Hans-Georg Becker, http://orcid.org/0000-0003-0432-294X
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+package de.tu_dortmund.ub.data.util;
+
+import net.sf.saxon.s9api.SaxonApiException;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MIME;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+
+/**
+ * Multipart body of an XML file which is transformed by an XSLT stylesheet while it is sent
+ *
+ * The result of the transformation is neither kept in memory nor written to a temporary file; the length of the
+ * body is unknown, so the request is sent chunked and cannot be repeated.
+ *
+ * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
+ * @version 2015-04-28
+ *
+ */
+public class TransformedFileBody extends AbstractContentBody {
+
+    private File file;
+    private String xslt;
+    private HashMap<String,String> params;
+
+    public TransformedFileBody(File file, String xslt, HashMap<String,String> params) {
+
+        super(ContentType.APPLICATION_XML);
+
+        this.file = file;
+        this.xslt = xslt;
+        this.params = params;
+    }
+
+    @Override
+    public String getFilename() {
+
+        return file.getName();
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+
+        try {
+
+            XmlTransformer.transform(new StreamSource(file), xslt, params, outputStream);
+        }
+        catch (SaxonApiException e) {
+
+            throw new IOException("Preprocessing of '" + file + "' failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String getTransferEncoding() {
+
+        return MIME.ENC_BINARY;
+    }
+
+    @Override
+    public long getContentLength() {
+
+        return -1;
+    }
+}
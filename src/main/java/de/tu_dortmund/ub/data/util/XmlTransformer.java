@@ -31,19 +31,40 @@ import org.jdom2.output.Format;
 import org.jdom2.output.XMLOutputter;
 import org.jdom2.transform.JDOMSource;
 
+import javax.xml.transform.Source;
 import javax.xml.transform.stream.StreamSource;
 import java.io.*;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility Class for processing XSLT stylesheets
  *
+ * Compiled stylesheets are cached per path on one shared Saxon {@link Processor} and recompiled only if the
+ * stylesheet file has been modified.
+ *
  * @author Dipl.-Math. Hans-Georg Becker (M.L.I.S.)
- * @version 2015-03-19
+ * @version 2015-04-28
  *
  */
 public class XmlTransformer {
 
+    private static final Processor processor = new Processor(false);
+
+    private static final ConcurrentHashMap<String, Stylesheet> stylesheets = new ConcurrentHashMap<String, Stylesheet>();
+
+    private static class Stylesheet {
+
+        private final long lastModified;
+        private final XsltExecutable executable;
+
+        private Stylesheet(long lastModified, XsltExecutable executable) {
+
+            this.lastModified = lastModified;
+            this.executable = executable;
+        }
+    }
+
     public static void main(String[] args) throws Exception {
 
         Document document = new SAXBuilder().build(new File("data/project.mods.xml"));
@@ -71,8 +92,6 @@ public class XmlTransformer {
 
         try {
 
-            Processor processor = new Processor(false);
-
             XdmNode source = processor.newDocumentBuilder().build(new JDOMSource( doc ));
             Serializer out = new Serializer();
             out.setOutputProperty(Serializer.Property.METHOD, "xml");
@@ -81,9 +100,7 @@ public class XmlTransformer {
             StringWriter buffer = new StringWriter();
             out.setOutputWriter(new PrintWriter( buffer ));
 
-            XsltCompiler xsltCompiler = processor.newXsltCompiler();
-            XsltExecutable exp = xsltCompiler.compile(new StreamSource(xslt));
-            XsltTransformer trans = exp.load();
+            XsltTransformer trans = getStylesheet(xslt).load();
             trans.setInitialContextNode(source);
             trans.setDestination(out);
 
@@ -105,4 +122,68 @@ public class XmlTransformer {
         return result;
     }
 
+    /**
+     * transform the given source and serialize the result directly to the given stream (no intermediate tree or string)
+     *
+     * @param source e.g. a StreamSource of the input file
+     * @param xslt path of the stylesheet
+     * @param params stylesheet parameters (may be null)
+     * @param outputStream
+     * @throws SaxonApiException
+     */
+    public static void transform(Source source, String xslt, HashMap<String,String> params, OutputStream outputStream) throws SaxonApiException {
+
+        Serializer out = new Serializer();
+        out.setOutputProperty(Serializer.Property.METHOD, "xml");
+        out.setOutputProperty(Serializer.Property.INDENT, "yes");
+        out.setOutputStream(outputStream);
+
+        XsltTransformer trans = getStylesheet(xslt).load();
+        trans.setSource(source);
+        trans.setDestination(out);
+
+        if (params != null) {
+            for (String p : params.keySet()) {
+                trans.setParameter(new QName(p), new XdmAtomicValue(params.get(p)));
+            }
+        }
+
+        trans.transform();
+    }
+
+    /**
+     * get the compiled stylesheet for the given path; it is compiled on first use and after changes of the file
+     *
+     * @param xslt path of the stylesheet
+     * @return XsltExecutable
+     * @throws SaxonApiException
+     */
+    public static XsltExecutable getStylesheet(String xslt) throws SaxonApiException {
+
+        File file = new File(xslt);
+        String key = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+
+        Stylesheet stylesheet = stylesheets.get(key);
+
+        if (stylesheet == null || stylesheet.lastModified != lastModified) {
+
+            synchronized (stylesheets) {
+
+                stylesheet = stylesheets.get(key);
+
+                if (stylesheet == null || stylesheet.lastModified != lastModified) {
+
+                    // XsltCompiler is not thread-safe, the compiled XsltExecutable is
+                    XsltCompiler xsltCompiler = processor.newXsltCompiler();
+                    stylesheet = new Stylesheet(lastModified, xsltCompiler.compile(new StreamSource(file)));
+
+                    stylesheets.put(key, stylesheet);
+                }
+            }
+        }
+
+        return stylesheet.executable;
+    }
+
 }
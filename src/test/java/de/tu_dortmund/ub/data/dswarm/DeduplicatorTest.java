@@ -0,0 +1,104 @@
+package de.tu_dortmund.ub.data.dswarm;
+
+import junit.framework.TestCase;
+import org.apache.log4j.Logger;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.helpers.StatementCollector;
+
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unit test for Deduplicator
+ */
+public class DeduplicatorTest extends TestCase {
+
+    private ValueFactory factory = ValueFactoryImpl.getInstance();
+
+    private Statement statement(Resource subject, Value object, Resource context) {
+
+        return factory.createStatement(subject, factory.createURI("http://purl.org/dc/terms/subject"), object, context);
+    }
+
+    public void testTermsAreDistinguished() throws Exception {
+
+        URI subject = factory.createURI("http://example.org/r1");
+        URI graph = factory.createURI("http://example.org/graph");
+
+        Properties config = new Properties();
+        config.setProperty("engine.dedup.bits", "128");
+
+        Deduplicator deduplicator = new Deduplicator(config, Logger.getLogger(DeduplicatorTest.class));
+
+        assertTrue(deduplicator.isNew(statement(subject, factory.createURI("http://example.org/s"), graph)));
+        assertTrue(deduplicator.isNew(statement(subject, factory.createLiteral("http://example.org/s"), graph)));
+        assertTrue(deduplicator.isNew(statement(subject, factory.createLiteral("http://example.org/s", "en"), graph)));
+        assertTrue(deduplicator.isNew(statement(subject, factory.createURI("http://example.org/s"), null)));
+        assertTrue(deduplicator.isNew(statement(subject, factory.createLiteral("ab"), graph)));
+        assertTrue(deduplicator.isNew(statement(factory.createURI("http://example.org/r1a"), factory.createLiteral("b"), graph)));
+
+        assertFalse(deduplicator.isNew(statement(factory.createURI("http://example.org/r1"), factory.createURI("http://example.org/s"), graph)));
+    }
+
+    public void testFilterAcrossTasks() throws Exception {
+
+        Deduplicator deduplicator = new Deduplicator(new Properties(), Logger.getLogger(DeduplicatorTest.class));
+
+        ArrayList<Statement> written = new ArrayList<Statement>();
+
+        for (int task = 0; task < 2; task++) {
+
+            AtomicLong duplicates = new AtomicLong();
+            Deduplicator.Scope scope = deduplicator.scope();
+            RDFHandler handler = scope.filter(new StatementCollector(written), duplicates);
+
+            for (int i = 0; i < 10; i++) {
+                handler.handleStatement(statement(factory.createURI("http://example.org/r" + (task * 5 + i)), factory.createLiteral("t"), null));
+            }
+
+            // twice within a task
+            handler.handleStatement(statement(factory.createURI("http://example.org/r" + (task * 5)), factory.createLiteral("t"), null));
+
+            assertEquals(task == 0 ? 1 : 6, duplicates.get());
+
+            scope.commit();
+        }
+
+        assertEquals(15, written.size());
+    }
+
+    public void testFailedTask() throws Exception {
+
+        Deduplicator deduplicator = new Deduplicator(new Properties(), Logger.getLogger(DeduplicatorTest.class));
+
+        Statement shared = statement(factory.createURI("http://example.org/r1"), factory.createLiteral("t"), null);
+
+        // the first task fails after writing the shared statement
+        AtomicLong duplicates = new AtomicLong();
+        Deduplicator.Scope failed = deduplicator.scope();
+        failed.filter(new StatementCollector(new ArrayList<Statement>()), duplicates).handleStatement(shared);
+
+        // the second task succeeds and still writes it
+        ArrayList<Statement> written = new ArrayList<Statement>();
+        Deduplicator.Scope succeeded = deduplicator.scope();
+        succeeded.filter(new StatementCollector(written), duplicates).handleStatement(shared);
+        succeeded.commit();
+
+        assertEquals(1, written.size());
+        assertEquals(0, duplicates.get());
+
+        // a later task drops it
+        written.clear();
+        deduplicator.scope().filter(new StatementCollector(written), duplicates).handleStatement(shared);
+
+        assertEquals(0, written.size());
+        assertEquals(1, duplicates.get());
+    }
+}
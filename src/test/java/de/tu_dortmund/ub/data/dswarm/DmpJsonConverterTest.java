@@ -0,0 +1,75 @@
+package de.tu_dortmund.ub.data.dswarm;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.openrdf.model.Literal;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.rio.helpers.StatementCollector;
+
+import java.util.ArrayList;
+
+/**
+ * Unit test for DmpJsonConverter
+ */
+public class DmpJsonConverterTest extends TestCase {
+
+    private static final String GRAPH = "http://example.org/graph";
+
+    private ArrayList<Statement> convert(String json) throws Exception {
+
+        URI graphUri = ValueFactoryImpl.getInstance().createURI(GRAPH);
+        DmpJsonConverter converter = new DmpJsonConverter(graphUri, Logger.getLogger(DmpJsonConverterTest.class));
+
+        ArrayList<Statement> statements = new ArrayList<Statement>();
+        long count = converter.convert(IOUtils.toInputStream(json, "UTF-8"), new StatementCollector(statements));
+
+        assertEquals(statements.size(), count);
+
+        return statements;
+    }
+
+    public void testRecord() throws Exception {
+
+        ArrayList<Statement> statements = convert("[{\"__record_id\":\"http://example.org/r1\",\"__record_data\":["
+                + "{\"http://www.w3.org/1999/02/22-rdf-syntax-ns#type\":\"http://example.org/Book\"},"
+                + "{\"http://purl.org/dc/terms/title\":\"A \\\"quoted\\\" title\"},"
+                + "{\"http://purl.org/dc/terms/subject\":[\"http://example.org/s1\",\"plain\"]}"
+                + "]}]");
+
+        assertEquals(4, statements.size());
+
+        assertEquals(RDF.TYPE, statements.get(0).getPredicate());
+        assertEquals("http://example.org/Book", statements.get(0).getObject().stringValue());
+        assertEquals(GRAPH, statements.get(0).getContext().stringValue());
+
+        assertTrue(statements.get(1).getObject() instanceof Literal);
+        assertEquals("A \"quoted\" title", statements.get(1).getObject().stringValue());
+
+        assertTrue(statements.get(2).getObject() instanceof URI);
+        assertTrue(statements.get(3).getObject() instanceof Literal);
+    }
+
+    public void testRecordIdAfterData() throws Exception {
+
+        ArrayList<Statement> statements = convert("[{\"__record_data\":[{\"http://purl.org/dc/terms/title\":\"t\"}],"
+                + "\"__record_id\":\"http://example.org/r1\"}]");
+
+        assertEquals(1, statements.size());
+        assertEquals("http://example.org/r1", statements.get(0).getSubject().stringValue());
+    }
+
+    public void testDuplicatesAndUnhandledValues() throws Exception {
+
+        ArrayList<Statement> statements = convert("[{\"__record_id\":\"http://example.org/r1\",\"__record_data\":["
+                + "{\"http://purl.org/dc/terms/title\":\"t\"},"
+                + "{\"http://purl.org/dc/terms/title\":\"t\"},"
+                + "{\"http://example.org/n\":42,\"http://example.org/o\":{\"a\":[1,2]}}"
+                + "]},{\"__record_id\":\"http://example.org/r2\",\"__record_data\":[]}]");
+
+        assertEquals(1, statements.size());
+    }
+}
@@ -0,0 +1,139 @@
+package de.tu_dortmund.ub.data.dswarm;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.util.Properties;
+
+/**
+ * Unit test for FileLeases
+ */
+public class FileLeasesTest extends TestCase {
+
+    private File directory;
+    private File resource;
+
+    @Override
+    protected void setUp() throws Exception {
+
+        directory = File.createTempFile("tpu-leases", "");
+        directory.delete();
+        directory.mkdirs();
+
+        resource = new File(directory, "records.xml");
+        FileUtils.writeStringToFile(resource, "<records/>", "UTF-8");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private FileLeases leases(String node) {
+
+        Properties config = new Properties();
+        config.setProperty("engine.leases", new File(directory, "leases").getPath());
+        config.setProperty("engine.leases.node", node);
+        config.setProperty("engine.leases.ttl", "1");
+
+        return new FileLeases(config, Logger.getLogger(FileLeasesTest.class));
+    }
+
+    public void testClaim() throws Exception {
+
+        FileLeases a = leases("a");
+        FileLeases b = leases("b");
+        a.open();
+        b.open();
+
+        try {
+
+            FileLeases.Lease lease = a.claim("records.xml", resource);
+
+            assertNotNull(lease);
+            assertNull(a.claim("records.xml", resource));
+            assertNull(b.claim("records.xml", resource));
+            assertEquals(FileLeases.State.CLAIMED, b.state("records.xml", resource));
+
+            // renewed by the heartbeat of 'a', so it does not expire
+            Thread.sleep(1500);
+            assertNull(b.claim("records.xml", resource));
+
+            lease.complete(Manifest.DONE);
+
+            assertEquals(FileLeases.State.DONE, b.state("records.xml", resource));
+            assertNull(b.claim("records.xml", resource));
+            assertFalse(b.awaitExpiry());
+
+            // the resource has changed
+            FileUtils.writeStringToFile(resource, "<records><record/></records>", "UTF-8");
+
+            assertEquals(FileLeases.State.FREE, b.state("records.xml", resource));
+            assertNotNull(b.claim("records.xml", resource));
+        }
+        finally {
+
+            a.close();
+            b.close();
+        }
+    }
+
+    public void testTakeOver() throws Exception {
+
+        // 'a' does not renew its lease, like a node which has stopped
+        FileLeases a = leases("a");
+        FileLeases b = leases("b");
+        b.open();
+
+        try {
+
+            assertNotNull(a.claim("records.xml", resource));
+            assertNull(b.claim("records.xml", resource));
+
+            assertTrue(b.awaitExpiry());
+
+            FileLeases.Lease lease = b.claim("records.xml", resource);
+            assertNotNull(lease);
+
+            // 'a' notices that its lease has been taken over
+            a.beat();
+            assertEquals(FileLeases.State.CLAIMED, a.state("records.xml", resource));
+
+            lease.complete(Manifest.DONE);
+            assertEquals(FileLeases.State.DONE, a.state("records.xml", resource));
+        }
+        finally {
+
+            a.close();
+            b.close();
+        }
+    }
+
+    public void testJobs() throws Exception {
+
+        FileLeases a = leases("a");
+        a.open();
+
+        Properties config = new Properties();
+        config.setProperty("engine.leases", new File(directory, "leases").getPath());
+        config.setProperty("engine.leases.node", "a");
+        config.setProperty(JobManifest.JOB, "loksys");
+
+        FileLeases job = new FileLeases(config, Logger.getLogger(FileLeasesTest.class));
+
+        try {
+
+            // same file name in the watch folder of another job
+            assertNotNull(a.claim("records.xml", resource));
+            assertNotNull(job.claim("records.xml", resource));
+        }
+        finally {
+
+            a.close();
+            job.close();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package de.tu_dortmund.ub.data.dswarm;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Unit test for JobManifest
+ */
+public class JobManifestTest extends TestCase {
+
+    public void testOverlay() throws Exception {
+
+        Properties config = new Properties();
+        config.setProperty("service.name", "TPU");
+        config.setProperty("engine.threads", "4");
+        config.setProperty("results.folder", "data/results");
+        config.setProperty("results.rdf.format", "xml");
+        config.setProperty("engine.manifest", "data/manifest.tsv");
+
+        Properties manifest = new Properties();
+        manifest.setProperty("jobs", "crossref, loksys");
+        manifest.setProperty("crossref.resource.watchfolder", "data/crossref");
+        manifest.setProperty("crossref.weight", "3");
+        manifest.setProperty("loksys.resource.watchfolder", "data/loksys");
+        manifest.setProperty("loksys.results.rdf.format", "nquads");
+        manifest.setProperty("loksys.engine.manifest", "data/loksys.tsv");
+
+        List<Properties> jobs = JobManifest.load(config, manifest);
+
+        assertEquals(2, jobs.size());
+
+        Properties crossref = jobs.get(0);
+        assertEquals("crossref", crossref.getProperty(JobManifest.JOB));
+        assertEquals("3", crossref.getProperty(JobManifest.WEIGHT));
+        assertEquals("TPU / crossref", crossref.getProperty("service.name"));
+        assertEquals("data/crossref", crossref.getProperty("resource.watchfolder"));
+        assertEquals("xml", crossref.getProperty("results.rdf.format"));
+        assertEquals("4", crossref.getProperty("engine.threads"));
+        assertNull(crossref.getProperty("weight"));
+        assertEquals("data/manifest.tsv.crossref", crossref.getProperty("engine.manifest"));
+
+        Properties loksys = jobs.get(1);
+        assertEquals("1", loksys.getProperty(JobManifest.WEIGHT));
+        assertEquals("data/loksys", loksys.getProperty("resource.watchfolder"));
+        assertEquals("nquads", loksys.getProperty("results.rdf.format"));
+        assertEquals("data/loksys.tsv", loksys.getProperty("engine.manifest"));
+
+        // the main configuration is not changed
+        assertEquals("TPU", config.getProperty("service.name"));
+        assertNull(config.getProperty("resource.watchfolder"));
+    }
+
+    public void testNoJobs() throws Exception {
+
+        try {
+            JobManifest.load(new Properties(), new Properties());
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
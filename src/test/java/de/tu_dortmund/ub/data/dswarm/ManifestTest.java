@@ -0,0 +1,134 @@
+package de.tu_dortmund.ub.data.dswarm;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.util.Properties;
+
+/**
+ * Unit test for Manifest
+ */
+public class ManifestTest extends TestCase {
+
+    public void testResume() throws Exception {
+
+        File journal = File.createTempFile("manifest", ".tsv");
+        journal.delete();
+        journal.deleteOnExit();
+
+        File resource = File.createTempFile("resource", ".xml");
+        resource.deleteOnExit();
+        FileUtils.writeStringToFile(resource, "<record/>", "UTF-8");
+
+        Properties config = new Properties();
+        config.setProperty("engine.manifest", journal.getPath());
+        config.setProperty("results.rdf.format", "nquads");
+
+        Logger logger = Logger.getLogger(ManifestTest.class);
+        TaskTemplate template = new TaskTemplate(config, logger, null);
+
+        Manifest manifest = new Manifest(config, logger, template);
+        manifest.open();
+
+        String key = manifest.key(resource, "resource.xml");
+        manifest.record(key, Manifest.STARTED, "");
+        assertFalse(manifest.isDone(key));
+
+        manifest.record(key, Manifest.DONE, "");
+        manifest.close();
+
+        // the template has been revalidated during the run: its version does not count as done
+        TaskTemplate.Snapshot revalidated = new TaskTemplate.Snapshot("[{\"name\":\"changed\"}]", null, null, null);
+        assertFalse(key.equals(manifest.key(key, revalidated)));
+        assertEquals(key, manifest.key(manifest.key(key, revalidated), template.snapshot()));
+
+        // next run
+        manifest = new Manifest(config, logger, template);
+        manifest.open();
+
+        assertTrue(manifest.isDone(manifest.key(resource, "resource.xml")));
+
+        FileUtils.writeStringToFile(resource, "<record>changed</record>", "UTF-8");
+        assertFalse(manifest.isDone(manifest.key(resource, "resource.xml")));
+
+        manifest.close();
+
+        // other version
+        FileUtils.writeStringToFile(resource, "<record/>", "UTF-8");
+        config.setProperty("results.rdf.format", "xml");
+
+        manifest = new Manifest(config, logger, template);
+        manifest.open();
+
+        assertFalse(manifest.isDone(manifest.key(resource, "resource.xml")));
+
+        manifest.close();
+    }
+
+    public void testAddedFile() throws Exception {
+
+        File folder = File.createTempFile("watchfolder", "");
+        folder.delete();
+        folder.mkdirs();
+        File results = new File(folder, "results");
+        results.mkdirs();
+
+        File journal = new File(folder, "manifest.tsv");
+
+        File b = new File(folder, "b.xml");
+        FileUtils.writeStringToFile(b, "<record>b</record>", "UTF-8");
+
+        Properties config = new Properties();
+        config.setProperty("engine.manifest", journal.getPath());
+        config.setProperty("resource.watchfolder", folder.getPath());
+        config.setProperty("results.folder", results.getPath());
+        config.setProperty("results.rdf.format", "nquads");
+
+        Logger logger = Logger.getLogger(ManifestTest.class);
+        TaskTemplate template = new TaskTemplate(config, logger, null);
+
+        try {
+
+            // first run: only b.xml
+            Manifest manifest = new Manifest(config, logger, template);
+            manifest.open();
+
+            String name = new Task(config, logger, null, template, null, "b.xml").getResultName("model");
+            File output = new File(name + ".rdf.nq");
+            FileUtils.writeStringToFile(output, "b", "UTF-8");
+
+            manifest.record(manifest.key(b, "b.xml"), Manifest.DONE, output.getPath());
+            manifest.close();
+
+            // second run: a.xml has been added and is listed before b.xml
+            File a = new File(folder, "a.xml");
+            FileUtils.writeStringToFile(a, "<record>a</record>", "UTF-8");
+
+            manifest = new Manifest(config, logger, template);
+            manifest.open();
+
+            assertFalse(manifest.isDone(manifest.key(a, "a.xml")));
+
+            String nameA = new Task(config, logger, null, template, null, "a.xml").getResultName("model");
+            assertFalse(name.equals(nameA));
+            assertEquals(name, new Task(config, logger, null, template, null, "b.xml").getResultName("model"));
+
+            // the result of b.xml is not overwritten, so it is still done
+            FileUtils.writeStringToFile(new File(nameA + ".rdf.nq"), "a", "UTF-8");
+            assertTrue(manifest.isDone(manifest.key(b, "b.xml")));
+            assertEquals("b", FileUtils.readFileToString(output, "UTF-8"));
+
+            // chunks are named after the split file
+            File chunk = new File(folder, "b.xml.chunk1");
+            assertEquals(name + ".part0001", new Task(config, logger, null, template, null, chunk, "b.xml", 1).getResultName("model"));
+
+            manifest.close();
+        }
+        finally {
+
+            FileUtils.deleteDirectory(folder);
+        }
+    }
+}
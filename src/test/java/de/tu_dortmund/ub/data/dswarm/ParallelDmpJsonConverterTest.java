@@ -0,0 +1,93 @@
+package de.tu_dortmund.ub.data.dswarm;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.StatementCollector;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Unit test for ParallelDmpJsonConverter
+ */
+public class ParallelDmpJsonConverterTest extends TestCase {
+
+    private static final URI GRAPH = ValueFactoryImpl.getInstance().createURI("http://example.org/graph");
+
+    private ForkJoinPool pool = new ForkJoinPool(4);
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        pool.shutdown();
+    }
+
+    private String json(int records) {
+
+        StringBuilder json = new StringBuilder("[");
+
+        for (int i = 0; i < records; i++) {
+
+            json.append(i > 0 ? "," : "").append("{\"__record_id\":\"http://example.org/r").append(i).append("\",\"__record_data\":[")
+                    .append("{\"http://www.w3.org/1999/02/22-rdf-syntax-ns#type\":\"http://example.org/Book\"},")
+                    .append("{\"http://purl.org/dc/terms/title\":\"title ").append(i).append("\"},")
+                    .append("{\"http://purl.org/dc/terms/title\":\"title ").append(i).append("\"}]}");
+        }
+
+        return json.append("]").toString();
+    }
+
+    public void testSameStatementsAsSequential() throws Exception {
+
+        String json = json(1000);
+
+        ArrayList<Statement> expected = new ArrayList<Statement>();
+        new DmpJsonConverter(GRAPH, Logger.getLogger(ParallelDmpJsonConverterTest.class)).convert(IOUtils.toInputStream(json, "UTF-8"), new StatementCollector(expected));
+
+        ArrayList<StatementCollector> shards = new ArrayList<StatementCollector>();
+
+        for (int i = 0; i < 4; i++) {
+            shards.add(new StatementCollector());
+        }
+
+        ParallelDmpJsonConverter converter = new ParallelDmpJsonConverter(GRAPH, Logger.getLogger(ParallelDmpJsonConverterTest.class), pool, 50);
+
+        long count = converter.convert(IOUtils.toInputStream(json, "UTF-8"), shards);
+
+        HashSet<Statement> actual = new HashSet<Statement>();
+        int size = 0;
+
+        for (StatementCollector shard : shards) {
+
+            actual.addAll(shard.getStatements());
+            size += shard.getStatements().size();
+        }
+
+        assertEquals(2000, expected.size());
+        assertEquals(expected.size(), count);
+        assertEquals(expected.size(), size);
+        assertEquals(new HashSet<Statement>(expected), actual);
+        assertEquals(1000, converter.getRecords());
+    }
+
+    public void testInvalidResult() throws Exception {
+
+        ArrayList<StatementCollector> shards = new ArrayList<StatementCollector>();
+        shards.add(new StatementCollector());
+
+        try {
+
+            new ParallelDmpJsonConverter(GRAPH, Logger.getLogger(ParallelDmpJsonConverterTest.class), pool, 10).convert(IOUtils.toInputStream("{}", "UTF-8"), shards);
+            fail();
+        }
+        catch (RDFHandlerException e) {
+            // expected
+        }
+    }
+}
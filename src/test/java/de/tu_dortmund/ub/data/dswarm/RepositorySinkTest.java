@@ -0,0 +1,101 @@
+package de.tu_dortmund.ub.data.dswarm;
+
+import junit.framework.TestCase;
+import org.apache.log4j.Logger;
+import org.openrdf.model.Statement;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.repository.RepositoryConnection;
+
+import java.util.Properties;
+
+/**
+ * Unit test for RepositorySink
+ */
+public class RepositorySinkTest extends TestCase {
+
+    private RepositorySink sink;
+
+    @Override
+    protected void setUp() throws Exception {
+
+        Properties config = new Properties();
+        config.setProperty("results.repository", "memory");
+        config.setProperty("results.repository.batch", "2");
+        config.setProperty("results.repository.connections", "1");
+
+        sink = new RepositorySink(config, Logger.getLogger(RepositorySinkTest.class));
+        sink.open();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        sink.close();
+    }
+
+    private Statement statement(int i) {
+
+        ValueFactory factory = ValueFactoryImpl.getInstance();
+
+        return factory.createStatement(factory.createURI("http://example.org/r" + i), factory.createURI("http://purl.org/dc/terms/title"), factory.createLiteral("t"), factory.createURI("http://example.org/graph"));
+    }
+
+    private long size() throws Exception {
+
+        RepositoryConnection connection = sink.getRepository().getConnection();
+
+        try {
+            return connection.size(ValueFactoryImpl.getInstance().createURI("http://example.org/graph"));
+        }
+        finally {
+            connection.close();
+        }
+    }
+
+    public void testLoad() throws Exception {
+
+        RepositorySink.Loader loader = sink.lease();
+
+        try {
+
+            loader.startRDF();
+
+            for (int i = 0; i < 5; i++) {
+                loader.handleStatement(statement(i));
+            }
+
+            loader.endRDF();
+
+            assertEquals(5, loader.getStatements());
+        }
+        finally {
+            loader.close();
+        }
+
+        assertEquals(5, size());
+    }
+
+    public void testFailedTaskKeepsCommittedBatches() throws Exception {
+
+        RepositorySink.Loader loader = sink.lease();
+
+        try {
+
+            loader.startRDF();
+
+            for (int i = 0; i < 3; i++) {
+                loader.handleStatement(statement(i));
+            }
+        }
+        finally {
+            loader.close();
+        }
+
+        assertEquals(2, size());
+
+        // the connection has been returned to the pool
+        loader = sink.lease();
+        loader.close();
+    }
+}
@@ -0,0 +1,120 @@
+package de.tu_dortmund.ub.data.dswarm;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.util.Properties;
+
+/**
+ * Unit test for SplitResource
+ */
+public class SplitResourceTest extends TestCase {
+
+    private File directory;
+    private File resource;
+    private Manifest manifest;
+    private String key;
+
+    @Override
+    protected void setUp() throws Exception {
+
+        directory = File.createTempFile("tpu-split", "");
+        directory.delete();
+        directory.mkdirs();
+
+        resource = new File(directory, "records.xml");
+        FileUtils.writeStringToFile(resource, "<records/>", "UTF-8");
+
+        Properties config = new Properties();
+        config.setProperty("engine.manifest", new File(directory, "manifest.tsv").getPath());
+
+        Logger logger = Logger.getLogger(SplitResourceTest.class);
+
+        manifest = new Manifest(config, logger, new TaskTemplate(config, logger, null));
+        manifest.open();
+
+        key = manifest.key(resource, "records.xml");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        manifest.close();
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private String output(String name) throws Exception {
+
+        File output = new File(directory, name);
+        FileUtils.writeStringToFile(output, "", "UTF-8");
+
+        return output.getPath();
+    }
+
+    public void testDone() throws Exception {
+
+        SplitResource split = new SplitResource(manifest, key);
+
+        // part 1 was done in an earlier run, parts 2 and 3 are processed now
+        split.addDone(output("part0001.nq"));
+        split.add();
+        split.add();
+        split.seal();
+
+        split.finished(Manifest.DONE, output("part0002.nq"));
+        assertFalse(manifest.isDone(key));
+
+        split.finished(Manifest.DONE, "");
+        assertTrue(manifest.isDone(key));
+
+        // an output of a chunk is missing
+        new File(directory, "part0001.nq").delete();
+        assertFalse(manifest.isDone(key));
+    }
+
+    public void testFailed() throws Exception {
+
+        SplitResource split = new SplitResource(manifest, key);
+
+        split.add();
+        split.add();
+        split.finished(Manifest.DONE, output("part0001.nq"));
+        split.finished(Manifest.FAILED, "");
+        split.seal();
+
+        assertFalse(manifest.isDone(key));
+    }
+
+    public void testLease() throws Exception {
+
+        Properties config = new Properties();
+        config.setProperty("engine.leases", new File(directory, "leases").getPath());
+        config.setProperty("engine.leases.node", "a");
+
+        FileLeases leases = new FileLeases(config, Logger.getLogger(SplitResourceTest.class));
+        leases.open();
+
+        try {
+
+            // the whole resource is claimed before it is split
+            SplitResource split = new SplitResource(manifest, key);
+            split.setLease(leases.claim("records.xml", resource));
+
+            split.add();
+            split.add();
+            split.seal();
+
+            split.finished(Manifest.DONE, output("part0001.nq"));
+            assertEquals(FileLeases.State.CLAIMED, leases.state("records.xml", resource));
+
+            split.finished(Manifest.DONE, output("part0002.nq"));
+            assertEquals(FileLeases.State.DONE, leases.state("records.xml", resource));
+            assertNull(leases.claim("records.xml", resource));
+        }
+        finally {
+            leases.close();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package de.tu_dortmund.ub.data.dswarm;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit test for TaskTemplate
+ */
+public class TaskTemplateTest extends TestCase {
+
+    private HttpServer server;
+    private CloseableHttpClient httpclient;
+
+    // version of the mappings and delay of the responses (ms)
+    private AtomicInteger version = new AtomicInteger(1);
+    private volatile long delay = 0;
+
+    @Override
+    protected void setUp() throws Exception {
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/dmp/", new HttpHandler() {
+
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+
+                try {
+                    Thread.sleep(delay);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                String json;
+
+                if (exchange.getRequestURI().getPath().contains("/projects/")) {
+                    json = "{\"mappings\":[" + version.get() + "]}";
+                }
+                else {
+                    json = "{\"uuid\":\"" + exchange.getRequestURI().getPath() + "\",\"configuration\":{\"resources\":[{\"uuid\":\"Resource-1\"}]}}";
+                }
+
+                byte[] body = json.getBytes("UTF-8");
+
+                exchange.sendResponseHeaders(200, body.length);
+
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+
+        httpclient = HttpClients.createDefault();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        httpclient.close();
+        server.stop(0);
+    }
+
+    private TaskTemplate template(String ttl) {
+
+        Properties config = new Properties();
+        config.setProperty("engine.dswarm.api", "http://localhost:" + server.getAddress().getPort() + "/dmp/");
+        config.setProperty("prototype.projectID", "Project-1");
+        config.setProperty("prototype.dataModelID", "DataModel-1");
+        config.setProperty("prototype.outputDataModelID", "DataModel-2");
+        config.setProperty("engine.template.ttl", ttl);
+
+        return new TaskTemplate(config, Logger.getLogger(TaskTemplateTest.class), httpclient);
+    }
+
+    public void testSnapshot() throws Exception {
+
+        TaskTemplate template = template("0");
+        template.load();
+
+        TaskTemplate.Snapshot snapshot = template.snapshot();
+
+        assertEquals("[1]", snapshot.getMappings());
+        assertEquals("Resource-1", snapshot.getInputResourceID());
+        assertTrue(snapshot.getOutputDataModel().contains("DataModel-2"));
+
+        // without ttl the template is never reloaded
+        version.set(2);
+        assertSame(snapshot, template.snapshot());
+    }
+
+    public void testRevalidationDoesNotBlock() throws Exception {
+
+        final TaskTemplate template = template("1");
+        template.load();
+
+        final TaskTemplate.Snapshot first = template.snapshot();
+
+        version.set(2);
+        delay = 1000;
+        Thread.sleep(1100);
+
+        // the first task after the ttl revalidates ...
+        Thread revalidation = new Thread() {
+
+            @Override
+            public void run() {
+
+                template.snapshot();
+            }
+        };
+        revalidation.start();
+        Thread.sleep(200);
+
+        // ... while the others go on with the cached documents
+        long start = System.currentTimeMillis();
+        assertSame(first, template.snapshot());
+        assertTrue(System.currentTimeMillis() - start < 500);
+
+        revalidation.join();
+
+        assertEquals("[2]", template.snapshot().getMappings());
+    }
+}
@@ -0,0 +1,59 @@
+package de.tu_dortmund.ub.data.dswarm;
+
+import junit.framework.TestCase;
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.RDF;
+
+/**
+ * Unit test for TermFactory
+ */
+public class TermFactoryTest extends TestCase {
+
+    public void testClassification() {
+
+        TermFactory terms = new TermFactory(ValueFactoryImpl.getInstance(), 2);
+
+        assertTrue(terms.object("http://example.org/s1") instanceof URI);
+        assertTrue(terms.object("urn:isbn:123") instanceof URI);
+        assertTrue(terms.object("plain") instanceof Literal);
+        assertTrue(terms.type("Book") instanceof Literal);
+    }
+
+    public void testInterning() {
+
+        TermFactory terms = new TermFactory(ValueFactoryImpl.getInstance(), 2);
+
+        assertSame(RDF.TYPE, terms.predicate("http://www.w3.org/1999/02/22-rdf-syntax-ns#type"));
+        assertSame(terms.predicate("http://purl.org/dc/terms/title"), terms.predicate("http://purl.org/dc/terms/title"));
+        assertSame(terms.type("http://example.org/Book"), terms.type("http://example.org/Book"));
+
+        // bounded: the eldest entry is evicted
+        URI title = terms.predicate("http://purl.org/dc/terms/title");
+        terms.predicate("http://purl.org/dc/terms/subject");
+        terms.predicate("http://purl.org/dc/terms/creator");
+        assertNotSame(title, terms.predicate("http://purl.org/dc/terms/title"));
+        assertEquals(title, terms.predicate("http://purl.org/dc/terms/title"));
+    }
+
+    public void testPredicateAndType() {
+
+        String key = "http://www.w3.org/1999/02/22-rdf-syntax-ns#type";
+        String other = "http://example.org/schema/rdf-syntax-ns#type";
+
+        TermFactory terms = new TermFactory(ValueFactoryImpl.getInstance(), 16);
+
+        // the same string first as a predicate, then as a type, and the other way round
+        assertSame(RDF.TYPE, terms.predicate(other));
+        assertEquals(other, terms.type(other).stringValue());
+
+        assertEquals(key, terms.type(key).stringValue());
+        assertSame(RDF.TYPE, terms.predicate(key));
+
+        terms = new TermFactory(ValueFactoryImpl.getInstance(), 16);
+
+        assertEquals(other, terms.type(other).stringValue());
+        assertSame(RDF.TYPE, terms.predicate(other));
+    }
+}
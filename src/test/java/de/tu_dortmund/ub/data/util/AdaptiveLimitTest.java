@@ -0,0 +1,55 @@
+package de.tu_dortmund.ub.data.util;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for AdaptiveLimit
+ */
+public class AdaptiveLimitTest extends TestCase {
+
+    public void testAdditiveIncrease() throws Exception {
+
+        AdaptiveLimit limit = new AdaptiveLimit(2, 1, 10, 0.5, 1000, 2.0);
+
+        for (int i = 0; i < 20; i++) {
+
+            limit.acquire();
+            limit.acquire();
+            limit.onSample(100, false);
+            limit.release();
+            limit.release();
+        }
+
+        assertTrue(limit.getLimit() > 2);
+        assertTrue(limit.getLimit() <= 10);
+    }
+
+    public void testMultiplicativeDecrease() throws Exception {
+
+        AdaptiveLimit limit = new AdaptiveLimit(8, 1, 10, 0.5, 1000, 2.0);
+
+        limit.acquire();
+        limit.onSample(100, true);
+        limit.release();
+        assertEquals(4, limit.getLimit());
+
+        // too slow
+        limit.acquire();
+        limit.onSample(5000, false);
+        limit.release();
+        assertEquals(2, limit.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            limit.onSample(100, true);
+        }
+        assertEquals(1, limit.getLimit());
+    }
+
+    public void testFixedLimit() throws Exception {
+
+        AdaptiveLimit limit = new AdaptiveLimit(3);
+
+        limit.onSample(100000, true);
+        assertEquals(3, limit.getLimit());
+    }
+}
@@ -0,0 +1,101 @@
+package de.tu_dortmund.ub.data.util;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.StringEntity;
+
+import java.io.*;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Unit test for Compression
+ */
+public class CompressionTest extends TestCase {
+
+    public void testNone() throws Exception {
+
+        Properties config = new Properties();
+
+        assertEquals("", Compression.getExtension(config));
+
+        HttpEntity entity = new StringEntity("data");
+        assertSame(entity, Compression.compress(entity, config));
+    }
+
+    public void testConcatenatedGzipFiles() throws Exception {
+
+        Properties config = new Properties();
+        config.setProperty("results.compression", "gzip");
+
+        assertEquals(".gz", Compression.getExtension(config));
+
+        File file = File.createTempFile("compression", ".gz");
+
+        try {
+
+            ByteArrayOutputStream concatenated = new ByteArrayOutputStream();
+
+            for (String line : new String[] { "first line\n", "second line\n" }) {
+
+                OutputStream out = Compression.create(file, config);
+                out.write(line.getBytes("UTF-8"));
+                out.close();
+
+                concatenated.write(IOUtils.toByteArray(new FileInputStream(file)));
+            }
+
+            assertEquals("first line\nsecond line\n", IOUtils.toString(new GZIPInputStream(new ByteArrayInputStream(concatenated.toByteArray())), "UTF-8"));
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    public void testGzipEntity() throws Exception {
+
+        Properties config = new Properties();
+        config.setProperty("engine.http.compression", "gzip");
+
+        HttpEntity entity = Compression.compress(new StringEntity("data"), config);
+
+        assertEquals("gzip", entity.getContentEncoding().getValue());
+        assertTrue(entity.isRepeatable());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeTo(out);
+
+        assertEquals("data", IOUtils.toString(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())), "UTF-8"));
+
+        // compressed while it is read
+        StringBuilder data = new StringBuilder();
+
+        for (int i = 0; i < 100000; i++) {
+            data.append("record ").append(i).append('\n');
+        }
+
+        entity = Compression.compress(new StringEntity(data.toString(), "UTF-8"), config);
+
+        assertEquals(data.toString(), IOUtils.toString(new GZIPInputStream(entity.getContent()), "UTF-8"));
+
+        // closed before the end
+        InputStream content = entity.getContent();
+        assertEquals(0x1f, content.read());
+        content.close();
+    }
+
+    public void testUnsupported() throws Exception {
+
+        Properties config = new Properties();
+        config.setProperty("results.compression", "zstd");
+
+        try {
+            Compression.getExtension(config);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
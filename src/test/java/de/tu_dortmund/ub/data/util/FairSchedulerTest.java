@@ -0,0 +1,99 @@
+package de.tu_dortmund.ub.data.util;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit test for FairScheduler
+ */
+public class FairSchedulerTest extends TestCase {
+
+    public void testWeightedShares() throws Exception {
+
+        FairScheduler<String> scheduler = new FairScheduler<String>();
+        scheduler.addQueue("big", 1.0);
+        scheduler.addQueue("small", 2.0);
+
+        for (int i = 0; i < 100; i++) {
+            scheduler.add("big", "big", 10);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            scheduler.add("small", "small", 10);
+        }
+
+        // the small project gets two of three slots until it is done, although the big one has ten times its items
+        ArrayList<String> order = new ArrayList<String>();
+
+        for (String item : scheduler) {
+            order.add(item);
+        }
+
+        assertEquals(110, order.size());
+        assertEquals(10, countSmall(order.subList(0, 15)));
+        assertNull(scheduler.next());
+    }
+
+    private int countSmall(List<String> items) {
+
+        int count = 0;
+
+        for (String item : items) {
+
+            if ("small".equals(item)) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    public void testCost() throws Exception {
+
+        FairScheduler<String> scheduler = new FairScheduler<String>();
+        scheduler.addQueue("a", 1.0);
+        scheduler.addQueue("b", 1.0);
+
+        // one large file of 'a' is worth four small files of 'b'
+        scheduler.add("a", "a1", 400);
+        scheduler.add("a", "a2", 400);
+
+        for (int i = 1; i <= 4; i++) {
+            scheduler.add("b", "b" + i, 100);
+        }
+
+        assertEquals("a1", scheduler.next());
+        assertEquals("b1", scheduler.next());
+        assertEquals("b2", scheduler.next());
+        assertEquals("b3", scheduler.next());
+        assertEquals("b4", scheduler.next());
+        assertEquals("a2", scheduler.next());
+    }
+
+    public void testQueueAddedLater() throws Exception {
+
+        FairScheduler<String> scheduler = new FairScheduler<String>();
+        scheduler.addQueue("a", 1.0);
+
+        for (int i = 0; i < 10; i++) {
+            scheduler.add("a", "a", 1);
+        }
+
+        for (int i = 0; i < 5; i++) {
+            scheduler.next();
+        }
+
+        // a new queue starts at the current virtual time, not at 0, so it takes turns with the others
+        scheduler.addQueue("b", 1.0);
+        scheduler.add("b", "b", 1);
+        scheduler.add("b", "b", 1);
+
+        assertEquals("b", scheduler.next());
+        assertEquals("a", scheduler.next());
+        assertEquals("b", scheduler.next());
+        assertEquals("a", scheduler.next());
+        assertEquals("a", scheduler.next());
+    }
+}
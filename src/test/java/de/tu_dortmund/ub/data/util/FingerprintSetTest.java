@@ -0,0 +1,90 @@
+package de.tu_dortmund.ub.data.util;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Unit test for FingerprintSet
+ */
+public class FingerprintSetTest extends TestCase {
+
+    public void testGrowth() throws Exception {
+
+        // far more fingerprints than expected: every segment has to grow several times
+        FingerprintSet set = new FingerprintSet(16, 64);
+
+        Random random = new Random(42);
+        long[] fingerprints = new long[100000];
+
+        for (int i = 0; i < fingerprints.length; i++) {
+
+            fingerprints[i] = random.nextLong();
+            assertTrue(set.add(fingerprints[i]));
+        }
+
+        for (long fingerprint : fingerprints) {
+            assertFalse(set.add(fingerprint));
+        }
+
+        assertEquals(fingerprints.length, set.size());
+        assertTrue(set.getMemory() >= 8L * fingerprints.length);
+    }
+
+    public void testWide() throws Exception {
+
+        FingerprintSet set = new FingerprintSet(1000, 128);
+
+        assertTrue(set.add(7L, 1L));
+        assertTrue(set.add(7L, 2L));
+        assertFalse(set.add(7L, 1L));
+        assertTrue(set.add(0L, 1L));
+
+        assertEquals(3, set.size());
+    }
+
+    public void testAddAll() throws Exception {
+
+        FingerprintSet set = new FingerprintSet(1000, 128);
+        FingerprintSet other = new FingerprintSet(0, 128);
+
+        assertTrue(set.add(7L, 1L));
+        assertTrue(other.add(7L, 1L));
+        assertTrue(other.add(7L, 2L));
+        assertFalse(set.contains(7L, 2L));
+
+        set.addAll(other);
+
+        assertTrue(set.contains(7L, 2L));
+        assertFalse(set.contains(8L, 2L));
+        assertEquals(2, set.size());
+    }
+
+    public void testHeap() throws Exception {
+
+        // one small segment on the heap, as for the statements of a task
+        FingerprintSet set = new FingerprintSet(0, 128, 0, false);
+
+        assertEquals(16L * 16, set.getMemory());
+
+        Random random = new Random(42);
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(set.add(random.nextLong(), i));
+        }
+
+        assertFalse(set.add(new Random(42).nextLong(), 0));
+        assertEquals(1000, set.size());
+    }
+
+    public void testInvalidWidth() throws Exception {
+
+        try {
+            new FingerprintSet(1000, 32);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
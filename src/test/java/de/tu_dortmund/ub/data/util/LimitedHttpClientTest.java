@@ -0,0 +1,140 @@
+package de.tu_dortmund.ub.data.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit test for LimitedHttpClient
+ */
+public class LimitedHttpClientTest extends TestCase {
+
+    private HttpServer server;
+    private LimitedHttpClient httpclient;
+
+    // requests received and number of 503 responses before the first 200
+    private AtomicInteger requests = new AtomicInteger();
+    private volatile int failures = 0;
+
+    @Override
+    protected void setUp() throws Exception {
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/dmp/", new HttpHandler() {
+
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+
+                byte[] body = "{}".getBytes("UTF-8");
+
+                exchange.sendResponseHeaders(requests.incrementAndGet() <= failures ? 503 : 200, body.length);
+
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+
+        Properties config = new Properties();
+        config.setProperty("engine.http.retries", "3");
+        config.setProperty("engine.http.backoff", "1");
+
+        httpclient = new LimitedHttpClient(HttpClients.createDefault(), new AdaptiveLimit(1), config);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        httpclient.close();
+        server.stop(0);
+    }
+
+    private String url(String path) {
+
+        return "http://localhost:" + server.getAddress().getPort() + "/dmp/" + path;
+    }
+
+    public void testReleaseOnClose() throws Exception {
+
+        CloseableHttpResponse response = httpclient.execute(new HttpGet(url("projects/1")));
+
+        assertEquals(1, httpclient.getLimit().getInFlight());
+
+        EntityUtils.consume(response.getEntity());
+        response.close();
+
+        assertEquals(0, httpclient.getLimit().getInFlight());
+
+        // the permit is given back once
+        response.close();
+
+        assertEquals(0, httpclient.getLimit().getInFlight());
+    }
+
+    public void testRetry() throws Exception {
+
+        failures = 2;
+
+        CloseableHttpResponse response = httpclient.execute(new HttpGet(url("projects/1")));
+
+        try {
+
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            assertEquals(3, requests.get());
+        }
+        finally {
+            response.close();
+        }
+
+        assertEquals(0, httpclient.getLimit().getInFlight());
+    }
+
+    public void testNoRetryOfPost() throws Exception {
+
+        failures = 2;
+
+        CloseableHttpResponse response = httpclient.execute(new HttpPost(url("tasks")));
+
+        try {
+
+            assertEquals(503, response.getStatusLine().getStatusCode());
+            assertEquals(1, requests.get());
+        }
+        finally {
+            response.close();
+        }
+    }
+
+    public void testRetriesExhausted() throws Exception {
+
+        failures = 10;
+
+        CloseableHttpResponse response = httpclient.execute(new HttpGet(url("projects/1")));
+
+        try {
+
+            assertEquals(503, response.getStatusLine().getStatusCode());
+            assertEquals(4, requests.get());
+        }
+        finally {
+            response.close();
+        }
+
+        assertEquals(0, httpclient.getLimit().getInFlight());
+    }
+}
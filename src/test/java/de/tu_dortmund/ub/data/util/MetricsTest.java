@@ -0,0 +1,38 @@
+package de.tu_dortmund.ub.data.util;
+
+import junit.framework.TestCase;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+
+/**
+ * Unit test for Metrics and MetricsExporter
+ */
+public class MetricsTest extends TestCase {
+
+    public void testPrometheus() throws Exception {
+
+        Metrics.timer("test_seconds", "stage=\"upload\"").update(200000000L);
+        Metrics.timer("test_seconds", "stage=\"upload\"").update(2000000000L);
+        Metrics.counter("test_total").add(3);
+
+        assertSame(Metrics.counter("test_total"), Metrics.counter("test_total"));
+
+        String text = MetricsExporter.toPrometheus();
+
+        assertTrue(text.contains("# TYPE test_seconds histogram\n"));
+        assertTrue(text.contains("test_seconds_bucket{stage=\"upload\",le=\"0.5\"} 1\n"));
+        assertTrue(text.contains("test_seconds_bucket{stage=\"upload\",le=\"5.0\"} 2\n"));
+        assertTrue(text.contains("test_seconds_bucket{stage=\"upload\",le=\"+Inf\"} 2\n"));
+        assertTrue(text.contains("test_seconds_count{stage=\"upload\"} 2\n"));
+        assertTrue(text.contains("# TYPE test_total counter\ntest_total 3\n"));
+
+        assertTrue(MetricsExporter.summary().contains("test_seconds{stage=\"upload\"}"));
+    }
+
+    public void testOperation() throws Exception {
+
+        assertEquals("POST tasks", LimitedHttpClient.getOperation(new HttpPost("http://localhost:8080/dmp/tasks?persist=false")));
+        assertEquals("PUT resources", LimitedHttpClient.getOperation(new HttpPut("http://localhost:8080/dmp/resources/bbd368e8-b75c-0e64-b96a-ab812a700b4f")));
+        assertEquals("POST data", LimitedHttpClient.getOperation(new HttpPost("http://localhost:8080/dmp/datamodels/DataModel-cf998267/data")));
+    }
+}
@@ -0,0 +1,17 @@
+package de.tu_dortmund.ub.data.util;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for PayloadLogger
+ */
+public class PayloadLoggerTest extends TestCase {
+
+    public void testTruncate() {
+
+        assertEquals("{\"a\":1}", PayloadLogger.truncate("{\"a\":1}", 10));
+        assertEquals("{\"a\"... (7 chars)", PayloadLogger.truncate("{\"a\":1}", 4));
+        assertEquals("{\"a\":1}", PayloadLogger.truncate("{\"a\":1}", 0));
+        assertNull(PayloadLogger.truncate(null, 4));
+    }
+}
@@ -0,0 +1,64 @@
+package de.tu_dortmund.ub.data.util;
+
+import junit.framework.TestCase;
+import org.openrdf.model.Statement;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFWriter;
+import org.openrdf.rio.Rio;
+import org.openrdf.rio.helpers.StatementCollector;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Properties;
+
+/**
+ * Unit test for RdfReader and RdfFormats
+ */
+public class RdfReaderTest extends TestCase {
+
+    public void testFormats() throws Exception {
+
+        assertEquals(RDFFormat.BINARY, RdfFormats.forName("binary"));
+        assertNull(RdfFormats.forName("hdt"));
+        assertNull(RdfFormats.forName(null));
+
+        assertEquals(RDFFormat.BINARY, RdfFormats.forFile(new File("DataModel-1.1.rdf.binary.gz")));
+        assertEquals(RDFFormat.NQUADS, RdfFormats.forFile(new File("DataModel-1.1.part0001.rdf.nquads")));
+        assertEquals(RDFFormat.RDFXML, RdfFormats.forFile(new File("dump.rdf")));
+        assertNull(RdfFormats.forFile(new File("dump.unknown")));
+    }
+
+    public void testCompressedBinary() throws Exception {
+
+        Properties config = new Properties();
+        config.setProperty("results.compression", "gzip");
+
+        File file = File.createTempFile("result", ".rdf.binary" + Compression.getExtension(config));
+
+        try {
+
+            ValueFactory factory = ValueFactoryImpl.getInstance();
+
+            OutputStream out = Compression.create(file, config);
+
+            RDFWriter writer = Rio.createWriter(RdfFormats.forFile(file), out);
+            writer.startRDF();
+            writer.handleStatement(factory.createStatement(factory.createURI("http://example.org/r1"), factory.createURI("http://purl.org/dc/terms/title"), factory.createLiteral("t"), factory.createURI("http://example.org/graph")));
+            writer.endRDF();
+
+            out.close();
+
+            ArrayList<Statement> statements = new ArrayList<Statement>();
+
+            assertEquals(1, RdfReader.read(file, new StatementCollector(statements)));
+            assertEquals("t", statements.get(0).getObject().stringValue());
+            assertEquals("http://example.org/graph", statements.get(0).getContext().stringValue());
+        }
+        finally {
+            file.delete();
+        }
+    }
+}
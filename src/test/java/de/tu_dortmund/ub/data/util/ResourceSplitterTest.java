@@ -0,0 +1,90 @@
+package de.tu_dortmund.ub.data.util;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Unit test for ResourceSplitter
+ */
+public class ResourceSplitterTest extends TestCase {
+
+    private File folder;
+    private Properties config;
+
+    @Override
+    protected void setUp() throws Exception {
+
+        folder = File.createTempFile("splitter", "");
+        folder.delete();
+        folder.mkdirs();
+
+        config = new Properties();
+        config.setProperty("splitter.threshold", "1");
+        config.setProperty("splitter.records", "2");
+        config.setProperty("splitter.xml.record", "record");
+        config.setProperty("splitter.folder", folder.getPath());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+
+        FileUtils.deleteDirectory(folder);
+    }
+
+    public void testXml() throws Exception {
+
+        File file = new File(folder, "dump.xml");
+        FileUtils.writeStringToFile(file, "<?xml version=\"1.0\"?><collection xmlns=\"urn:test\"><header/><record><id>1</id></record><record><id>2</id></record><record><id>3</id></record></collection>", "UTF-8");
+
+        ResourceSplitter splitter = new ResourceSplitter(config);
+        assertTrue(splitter.accepts(file));
+
+        List<File> chunks = splitter.split(file);
+
+        assertEquals(2, chunks.size());
+        assertEquals("dump.part0001.xml", chunks.get(0).getName());
+
+        String first = FileUtils.readFileToString(chunks.get(0), "UTF-8");
+        assertTrue(first.contains("<collection xmlns=\"urn:test\">"));
+        assertTrue(first.contains("<id>2</id>"));
+        assertFalse(first.contains("<header"));
+
+        String second = FileUtils.readFileToString(chunks.get(1), "UTF-8");
+        assertTrue(second.contains("<id>3</id>"));
+        assertTrue(second.trim().endsWith("</collection>"));
+    }
+
+    public void testCsv() throws Exception {
+
+        File file = new File(folder, "dump.csv");
+        FileUtils.writeStringToFile(file, "id;title\n1;\"A\nB\"\n2;C\n3;D\n", "UTF-8");
+
+        List<File> chunks = new ResourceSplitter(config).split(file);
+
+        assertEquals(2, chunks.size());
+        assertEquals("id;title\n1;\"A\nB\"\n2;C\n", FileUtils.readFileToString(chunks.get(0), "UTF-8"));
+        assertEquals("id;title\n3;D\n", FileUtils.readFileToString(chunks.get(1), "UTF-8"));
+    }
+
+    public void testSameName() throws Exception {
+
+        File first = new File(folder, "a/dump.csv");
+        File second = new File(folder, "b/dump.csv");
+        FileUtils.writeStringToFile(first, "id,title\n1,a\n2,b\n3,c\n", "UTF-8");
+        FileUtils.writeStringToFile(second, "id,title\n4,d\n5,e\n6,f\n", "UTF-8");
+
+        ResourceSplitter splitter = new ResourceSplitter(config);
+
+        List<File> chunks = splitter.split(first);
+        List<File> others = splitter.split(second);
+
+        assertEquals(chunks.get(0).getName(), others.get(0).getName());
+        assertFalse(chunks.get(0).equals(others.get(0)));
+        assertTrue(FileUtils.readFileToString(chunks.get(0), "UTF-8").contains("1,a"));
+        assertTrue(FileUtils.readFileToString(others.get(0), "UTF-8").contains("4,d"));
+    }
+}
@@ -0,0 +1,45 @@
+package de.tu_dortmund.ub.data.util;
+
+import junit.framework.TestCase;
+import org.jdom2.Document;
+import org.jdom2.input.SAXBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.StringReader;
+
+/**
+ * Unit test for XmlTransformer
+ */
+public class XmlTransformerTest extends TestCase {
+
+    public void testStylesheetIsCompiledOnce() throws Exception {
+
+        assertSame(XmlTransformer.getStylesheet("xslt/cdata.xsl"), XmlTransformer.getStylesheet("xslt/cdata.xsl"));
+    }
+
+    public void testCdataStylesheet() throws Exception {
+
+        Document document = new SAXBuilder().build(new StringReader("<record><title>A &amp; B</title></record>"));
+
+        String result = XmlTransformer.xmlOutputter(document, "xslt/cdata.xsl", null);
+
+        assertTrue(result.contains("<title><![CDATA["));
+    }
+
+    public void testTransformedFileBody() throws Exception {
+
+        File file = File.createTempFile("record", ".xml");
+        file.deleteOnExit();
+
+        FileWriter writer = new FileWriter(file);
+        writer.write("<record><title>A</title></record>");
+        writer.close();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new TransformedFileBody(file, "xslt/cdata.xsl", null).writeTo(out);
+
+        assertTrue(out.toString("UTF-8").contains("<title><![CDATA[A]]></title>"));
+    }
+}